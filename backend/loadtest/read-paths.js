@@ -0,0 +1,51 @@
+/**
+ * 讀取路徑壓力測試（k6）
+ * 比較平台執行緒模式與虛擬執行緒模式（virtual profile）在排行榜與課程詳情請求下的吞吐量與延遲
+ *
+ * 使用方式：見 loadtest/README.md
+ *
+ * 環境變數：
+ *   BASE_URL     後端網址（預設 http://localhost:8080）
+ *   TOKEN        JWT（選填；帶入時課程詳情會包含擁有狀態與完成進度的查詢）
+ *   COURSE_CODE  課程代碼（預設 SOFTWARE_DESIGN_PATTERN）
+ *   VUS          同時使用者數（預設 200）
+ *   DURATION     測試時間（預設 2m）
+ */
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN || '';
+const COURSE_CODE = __ENV.COURSE_CODE || 'SOFTWARE_DESIGN_PATTERN';
+
+export const options = {
+  scenarios: {
+    read_paths: {
+      executor: 'constant-vus',
+      vus: Number(__ENV.VUS || 200),
+      duration: __ENV.DURATION || '2m',
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+};
+
+const params = {
+  headers: TOKEN ? { Authorization: `Bearer ${TOKEN}` } : {},
+};
+
+export default function () {
+  const offset = Math.floor(Math.random() * 10) * 20;
+
+  const responses = http.batch([
+    ['GET', `${BASE_URL}/api/leaderboard/total/v2?limit=20&offset=${offset}`, null, { ...params, tags: { name: 'leaderboard-total' } }],
+    ['GET', `${BASE_URL}/api/leaderboard/weekly/v2?limit=20&offset=${offset}`, null, { ...params, tags: { name: 'leaderboard-weekly' } }],
+    ['GET', `${BASE_URL}/api/courses/${COURSE_CODE}`, null, { ...params, tags: { name: 'course-detail' } }],
+  ]);
+
+  responses.forEach((res) => {
+    check(res, { 'status is 200': (r) => r.status === 200 });
+  });
+}
@@ -0,0 +1,90 @@
+package com.wsa.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT 驗證成本基準測試（每個請求的驗證成本）
+ *
+ * 比較：
+ *   - legacyDoubleParse：原本 JwtFilter 的流程，validateToken + getUserIdFromToken，
+ *     每次都重新產生密鑰、建立解析器，同一個 token 驗證兩次
+ *   - parseOnce：JwtService.resolveUserId，啟動時建立的密鑰與解析器，只驗證一次
+ *
+ * 執行方式：mvn -Pjmh -DskipTests verify -Djmh.args="JwtAuthBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-with-at-least-256-bits-for-hs256";
+
+    private JwtService jwtService;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "expiration", 86_400_000L);
+        jwtService.init();
+        token = jwtService.generateToken(UUID.randomUUID());
+    }
+
+    @Benchmark
+    public UUID legacyDoubleParse() {
+        if (!legacyValidateToken(token)) {
+            return null;
+        }
+        return legacyGetUserIdFromToken(token);
+    }
+
+    @Benchmark
+    public Optional<UUID> parseOnce() {
+        return jwtService.resolveUserId(token);
+    }
+
+    // ===== 原本 JwtService 的實作（每次呼叫都重新產生密鑰與解析器） =====
+
+    private static Key legacySigningKey() {
+        return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean legacyValidateToken(String token) {
+        try {
+            Jwts.parserBuilder()
+                    .setSigningKey(legacySigningKey())
+                    .build()
+                    .parseClaimsJws(token);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static UUID legacyGetUserIdFromToken(String token) {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(legacySigningKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        return UUID.fromString(claims.getSubject());
+    }
+}
@@ -0,0 +1,13 @@
+package com.wsa.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 排程設定類別
+ * 啟用 @Scheduled 背景工作（例如：每週排行榜快照）
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -61,6 +61,9 @@ public class SecurityConfig {
                         .requestMatchers("GET", "/api/leaderboard/**").permitAll()
                         // /api/** 其他路徑需要認證
                         .requestMatchers("/api/**").authenticated()
+                        // 健康檢查允許所有人存取；其他 actuator 端點（指標、請求追蹤）只限管理員（security.admin-user-ids）
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         // 其他所有請求允許存取
                         .anyRequest().permitAll()
                 )
@@ -0,0 +1,37 @@
+package com.wsa.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+/**
+ * 虛擬執行緒模式檢查
+ * spring.threads.virtual.enabled 只在 Java 21 以上生效；在較舊的 JVM 上 Spring Boot 會靜默改用平台執行緒，
+ * 因此啟動時記錄實際使用的模式，避免誤以為已啟用
+ */
+@Slf4j
+@Configuration
+public class VirtualThreadsConfig {
+
+    /** 是否要求使用虛擬執行緒 */
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    /**
+     * 應用程式啟動完成後記錄請求執行模式
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreadingMode() {
+        int javaVersion = Runtime.version().feature();
+        if (!virtualThreadsEnabled) {
+            log.info("[VirtualThreadsConfig] 請求執行模式：平台執行緒（Java {}）", javaVersion);
+        } else if (javaVersion < 21) {
+            log.warn("[VirtualThreadsConfig] 已設定 spring.threads.virtual.enabled，但目前為 Java {}，仍使用平台執行緒；請以 mvn -Pjava21 建置並使用 Java 21 執行",
+                javaVersion);
+        } else {
+            log.info("[VirtualThreadsConfig] 請求執行模式：虛擬執行緒（Java {}）", javaVersion);
+        }
+    }
+}
@@ -48,15 +48,21 @@ public class LeaderboardController {
      * 取得總經驗值排行榜（新版，支援分頁和當前使用者排名）
      * GET /api/leaderboard/total/v2
      *
+     * 分頁模式：
+     * - 帶 cursor：keyset 分頁，從上一頁的 nextCursor 往後查詢（建議用於無限捲動）
+     * - 不帶 cursor：offset 分頁（相容模式）
+     *
      * @param limit 每頁回傳人數（預設 20）
-     * @param offset 起始位置（預設 0）
+     * @param offset 起始位置（預設 0，僅 offset 模式使用）
+     * @param cursor 上一頁回傳的 nextCursor（可選）
      * @param authentication Spring Security 認證物件（可選，未登入也可查看）
-     * @return 排行榜回應資料
+     * @return 排行榜回應資料（游標無效時回傳 400）
      */
     @GetMapping("/total/v2")
     public ResponseEntity<LeaderboardResponseDto> getTotalXpLeaderboardV2(
             @RequestParam(defaultValue = "20") int limit,
             @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor,
             Authentication authentication) {
 
         // 取得當前使用者 ID（如果已登入）
@@ -69,6 +75,15 @@ public class LeaderboardController {
             }
         }
 
+        // 帶有游標時使用 keyset 分頁
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                return ResponseEntity.ok(leaderboardService.getTotalXpLeaderboardWithCursor(limit, cursor, currentUserId));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
         LeaderboardResponseDto response = leaderboardService.getTotalXpLeaderboardWithPagination(
             limit, offset, currentUserId
         );
@@ -101,15 +116,21 @@ public class LeaderboardController {
      * 取得本週經驗值排行榜（新版，支援分頁和當前使用者排名）
      * GET /api/leaderboard/weekly/v2
      *
+     * 分頁模式：
+     * - 帶 cursor：keyset 分頁，從上一頁的 nextCursor 往後查詢（建議用於無限捲動）
+     * - 不帶 cursor：offset 分頁（相容模式）
+     *
      * @param limit 每頁回傳人數（預設 20）
-     * @param offset 起始位置（預設 0）
+     * @param offset 起始位置（預設 0，僅 offset 模式使用）
+     * @param cursor 上一頁回傳的 nextCursor（可選）
      * @param authentication Spring Security 認證物件（可選，未登入也可查看）
-     * @return 排行榜回應資料
+     * @return 排行榜回應資料（游標無效時回傳 400）
      */
     @GetMapping("/weekly/v2")
     public ResponseEntity<LeaderboardResponseDto> getWeeklyXpLeaderboardV2(
             @RequestParam(defaultValue = "20") int limit,
             @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor,
             Authentication authentication) {
 
         // 取得當前使用者 ID（如果已登入）
@@ -122,6 +143,15 @@ public class LeaderboardController {
             }
         }
 
+        // 帶有游標時使用 keyset 分頁
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                return ResponseEntity.ok(leaderboardService.getWeeklyXpLeaderboardWithCursor(limit, cursor, currentUserId));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
         LeaderboardResponseDto response = leaderboardService.getWeeklyXpLeaderboardWithPagination(
             limit, offset, currentUserId
         );
@@ -4,6 +4,7 @@ import com.wsa.dto.UserDto;
 import com.wsa.entity.User;
 import com.wsa.repository.UserRepository;
 import com.wsa.service.UserService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -15,6 +16,7 @@ import java.util.UUID;
  * 使用者相關 API Controller
  * 處理使用者資料查詢等 HTTP 請求
  */
+@Slf4j
 @RestController
 @RequestMapping("/api/user")
 public class UserController {
@@ -35,26 +37,22 @@ public class UserController {
      */
     @GetMapping("/me")
     public ResponseEntity<UserDto> getCurrentUser(Authentication authentication) {
-        System.out.println("[UserController] /api/user/me 被調用");
-        System.out.println("[UserController] Authentication: " + authentication);
-        System.out.println("[UserController] Principal: " + (authentication != null ? authentication.getPrincipal() : "null"));
+        log.debug("[UserController] /api/user/me 被調用，Principal: {}",
+                authentication != null ? authentication.getPrincipal() : null);
 
         // 檢查是否已認證
         if (authentication == null || authentication.getPrincipal() == null) {
-            System.out.println("[UserController] 未認證，回傳 401");
+            log.debug("[UserController] 未認證，回傳 401");
             return ResponseEntity.status(401).build();
         }
 
         // 從 Authentication 中取得使用者 ID（JwtFilter 設定的 principal）
         UUID userId = (UUID) authentication.getPrincipal();
-        System.out.println("[UserController] 使用者 ID: " + userId);
 
         // 從資料庫查詢使用者資料
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        System.out.println("[UserController] 找到使用者: " + user.getDisplayName());
-
         // 轉換為 DTO 並回傳
         return ResponseEntity.ok(UserDto.from(user));
     }
@@ -80,22 +78,21 @@ public class UserController {
      */
     @PostMapping("/reset")
     public ResponseEntity<UserDto> resetUserData(Authentication authentication) {
-        System.out.println("[UserController] /api/user/reset 被調用");
-        System.out.println("[UserController] Authentication: " + authentication);
+        log.debug("[UserController] /api/user/reset 被調用");
 
         // 步驟 1：檢查是否已認證
         if (authentication == null || authentication.getPrincipal() == null) {
-            System.out.println("[UserController] 未認證，回傳 401");
+            log.debug("[UserController] 未認證，回傳 401");
             return ResponseEntity.status(401).build();
         }
 
         // 步驟 2：從 Authentication 中取得使用者 ID
         UUID userId = (UUID) authentication.getPrincipal();
-        System.out.println("[UserController] 準備重置使用者 ID: " + userId);
+        log.info("[UserController] 準備重置使用者 ID: {}", userId);
 
         // 步驟 3：呼叫 UserService 進行重置
         User resetUser = userService.resetUserData(userId);
-        System.out.println("[UserController] 使用者 " + userId + " 資料重置完成");
+        log.info("[UserController] 使用者 {} 資料重置完成", userId);
 
         // 步驟 4：回傳重置後的使用者資料
         return ResponseEntity.ok(UserDto.from(resetUser));
@@ -1,6 +1,5 @@
 package com.wsa.controller;
 
-import com.wsa.entity.UserUnitProgress;
 import com.wsa.service.UserProgressService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -73,12 +72,12 @@ public class UserProgressController {
 
         try {
             // 呼叫 Service 更新進度（不會增加 XP）
-            UserUnitProgress progress = userProgressService.updateLastPosition(userId, unitId, lastPos);
+            int recordedPosition = userProgressService.updateLastPosition(userId, unitId, lastPos);
 
             // 建立回應（只回傳 unitId 和 lastPositionSeconds）
             Map<String, Object> response = new HashMap<>();
             response.put("unitId", unitId);
-            response.put("lastPositionSeconds", progress.getLastPositionSeconds());
+            response.put("lastPositionSeconds", recordedPosition);
 
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
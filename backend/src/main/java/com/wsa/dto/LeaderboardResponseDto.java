@@ -30,4 +30,10 @@ public class LeaderboardResponseDto {
 
     /** 是否有更多資料 */
     private Boolean hasMore;
+
+    /**
+     * 下一頁的游標（keyset 分頁用，前端應視為不透明字串）
+     * 若沒有更多資料則為 null
+     */
+    private String nextCursor;
 }
@@ -0,0 +1,32 @@
+package com.wsa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 訂單列表回應資料傳輸物件（keyset 分頁）
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderListResponseDto {
+
+    /** 訂單列表 */
+    private List<OrderResponseDto> orders;
+
+    /** 是否有更多資料 */
+    private Boolean hasMore;
+
+    /**
+     * 下一頁的游標（前端應視為不透明字串）
+     * 若沒有更多資料則為 null
+     */
+    private String nextCursor;
+}
@@ -58,7 +58,7 @@ public class UserDto {
                 .provider(user.getProvider())
                 .level(user.getLevel())
                 .totalXp(user.getTotalXp())
-                .weeklyXp(user.getWeeklyXp())
+                .weeklyXp(user.getEffectiveWeeklyXp())
                 .build();
     }
 }
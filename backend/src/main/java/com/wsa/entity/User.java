@@ -1,5 +1,6 @@
 package com.wsa.entity;
 
+import com.wsa.service.WeekNumber;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -60,11 +61,24 @@ public class User {
     @Builder.Default
     private Integer totalXp = 0;
 
-    /** 使用者本週經驗值（預設為 0） */
+    /**
+     * 使用者本週經驗值（預設為 0）
+     * 注意：只有在 weeklyXpWeek 等於目前週次時才有效，請使用 getEffectiveWeeklyXp() 讀取
+     */
     @Column(name = "weekly_xp", nullable = false)
     @Builder.Default
     private Integer weeklyXp = 0;
 
+    /** weeklyXp 所屬的週次（參考 WeekNumber） */
+    @Column(name = "weekly_xp_week", nullable = false)
+    @Builder.Default
+    private Integer weeklyXpWeek = 0;
+
+    /** 經驗值版本（每次寫入 totalXp / weeklyXp 時加 1，排行榜排名索引用來捨棄較舊的變更事件） */
+    @Column(name = "xp_version", nullable = false)
+    @Builder.Default
+    private Long xpVersion = 0L;
+
     /** 建立時間（自動產生） */
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -74,4 +88,24 @@ public class User {
     @UpdateTimestamp
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
+
+    /**
+     * 取得目前週次的有效本週經驗值
+     * 若 weeklyXp 屬於過去的週次，視為 0（換週時不需改寫資料）
+     *
+     * @return 有效的本週經驗值
+     */
+    public int getEffectiveWeeklyXp() {
+        return getEffectiveWeeklyXp(WeekNumber.current());
+    }
+
+    /**
+     * 取得指定週次的有效本週經驗值
+     *
+     * @param week 週次
+     * @return 有效的本週經驗值（週次不符時為 0）
+     */
+    public int getEffectiveWeeklyXp(int week) {
+        return weeklyXpWeek != null && weeklyXpWeek == week ? weeklyXp : 0;
+    }
 }
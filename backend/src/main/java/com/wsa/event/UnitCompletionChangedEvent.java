@@ -0,0 +1,23 @@
+package com.wsa.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * 使用者單元完成狀態變更事件
+ * 在使用者完成單元或重置資料時發布，由單元完成快取於交易提交後套用
+ *
+ * 注意：unitId 為 null 表示使用者所有單元的完成狀態都已清除（重置資料）
+ */
+@Getter
+@AllArgsConstructor
+public class UnitCompletionChangedEvent {
+
+    /** 使用者 UUID */
+    private final UUID userId;
+
+    /** 完成的單元 UUID（null 表示重置） */
+    private final UUID unitId;
+}
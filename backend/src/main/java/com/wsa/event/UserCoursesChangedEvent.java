@@ -0,0 +1,19 @@
+package com.wsa.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * 使用者課程擁有權變更事件
+ * 在使用者購買課程（user_courses 新增）或重置資料（user_courses 刪除）時發布，
+ * 由擁有課程快取於交易提交後清除該使用者的快取
+ */
+@Getter
+@AllArgsConstructor
+public class UserCoursesChangedEvent {
+
+    /** 使用者 UUID */
+    private final UUID userId;
+}
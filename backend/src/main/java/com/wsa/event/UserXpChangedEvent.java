@@ -0,0 +1,34 @@
+package com.wsa.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * 使用者經驗值變更事件
+ * 在使用者的 totalXp / weeklyXp 被寫入資料庫時發布，
+ * 由排行榜排名索引於交易提交後套用
+ *
+ * 注意：事件攜帶的是「變更後的絕對值」而非增量，重複套用結果相同；
+ * 同一使用者的事件送達順序可能與提交順序不同，以 xpVersion 捨棄較舊的事件
+ */
+@Getter
+@AllArgsConstructor
+public class UserXpChangedEvent {
+
+    /** 使用者 UUID */
+    private final UUID userId;
+
+    /** 變更後的總經驗值 */
+    private final int totalXp;
+
+    /** 變更後的本週經驗值 */
+    private final int weeklyXp;
+
+    /** 本週經驗值所屬的週次 */
+    private final int weeklyXpWeek;
+
+    /** 變更後的經驗值版本（users.xp_version） */
+    private final long xpVersion;
+}
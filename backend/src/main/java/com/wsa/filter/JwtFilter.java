@@ -1,12 +1,15 @@
 package com.wsa.filter;
 
-import com.wsa.service.JwtService;
+import com.wsa.service.VerifiedTokenCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -14,7 +17,9 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -22,11 +27,16 @@ import java.util.UUID;
  * 攔截所有 HTTP 請求，從 Authorization header 中提取 JWT token 並驗證
  * 若 token 有效，則將使用者資訊設定到 Spring Security Context 中
  */
+@Slf4j
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
     @Autowired
-    private JwtService jwtService;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    /** 管理員使用者 ID（可存取 /actuator/metrics、/actuator/requesttrace 等管理端點） */
+    @Value("${security.admin-user-ids:}")
+    private Set<UUID> adminUserIds;
 
     /**
      * 處理每個 HTTP 請求的過濾邏輯
@@ -44,43 +54,43 @@ public class JwtFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
-        String requestURI = request.getRequestURI();
-        System.out.println("[JwtFilter] 處理請求: " + request.getMethod() + " " + requestURI);
+        log.debug("[JwtFilter] 處理請求: {} {}", request.getMethod(), request.getRequestURI());
 
         try {
             // 從請求中提取 JWT token
             String jwt = getJwtFromRequest(request);
-            String tokenPreview = jwt != null ? jwt.substring(0, Math.min(20, jwt.length())) : "null";
-            System.out.println("[JwtFilter] Token 存在: " + (jwt != null) + ", Token 前20字元: " + tokenPreview);
+            // 注意：不記錄 token 內容
+            log.debug("[JwtFilter] Token 存在: {}", jwt != null);
 
             // 若 token 存在且有效，則設定認證資訊
             if (StringUtils.hasText(jwt)) {
-                boolean isValid = jwtService.validateToken(jwt);
-                System.out.println("[JwtFilter] Token 驗證結果: " + isValid);
+                // 驗證 token 並取得使用者 ID（已驗證過的 token 直接由快取取得）
+                Optional<UUID> resolvedUserId = verifiedTokenCache.resolveUserId(jwt);
+                log.debug("[JwtFilter] Token 驗證結果: {}", resolvedUserId.isPresent());
 
-                if (isValid) {
-                    // 從 token 中取得使用者 ID
-                    UUID userId = jwtService.getUserIdFromToken(jwt);
-                    System.out.println("[JwtFilter] 使用者 ID: " + userId);
+                if (resolvedUserId.isPresent()) {
+                    UUID userId = resolvedUserId.get();
 
-                    // 建立 Spring Security 的認證物件，principal 為使用者 ID
+                    // 建立 Spring Security 的認證物件，principal 為使用者 ID；管理員另外授予 ROLE_ADMIN
+                    List<SimpleGrantedAuthority> authorities = adminUserIds.contains(userId)
+                            ? List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+                            : List.of();
                     UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(userId, null, new ArrayList<>());
+                            new UsernamePasswordAuthenticationToken(userId, null, authorities);
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                     // 將認證資訊設定到 Security Context，後續的 Controller 可透過 Authentication 取得使用者 ID
                     SecurityContextHolder.getContext().setAuthentication(authentication);
-                    System.out.println("[JwtFilter] 認證成功，使用者 ID: " + userId);
+                    log.debug("[JwtFilter] 認證成功，使用者 ID: {}", userId);
                 } else {
-                    System.out.println("[JwtFilter] Token 驗證失敗");
+                    log.debug("[JwtFilter] Token 驗證失敗");
                 }
             } else {
-                System.out.println("[JwtFilter] 沒有 token，跳過認證");
+                log.debug("[JwtFilter] 沒有 token，跳過認證");
             }
         } catch (Exception ex) {
             // 若發生任何例外，記錄錯誤但不中斷請求處理
-            System.err.println("[JwtFilter] 設定使用者認證時發生錯誤: " + ex.getMessage());
-            ex.printStackTrace();
+            log.warn("[JwtFilter] 設定使用者認證時發生錯誤", ex);
         }
 
         // 繼續執行下一個過濾器
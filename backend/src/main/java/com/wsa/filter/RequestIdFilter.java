@@ -0,0 +1,65 @@
+package com.wsa.filter;
+
+import com.wsa.logging.RequestTraceRegistry;
+import com.wsa.logging.RequestTraceTurboFilter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Request ID 過濾器
+ * 為每個請求設定 request id（沿用 X-Request-Id header 或自動產生），放入 MDC 並回傳給前端，
+ * 並依 RequestTraceRegistry 決定此請求是否輸出完整的除錯日誌
+ *
+ * 注意：需在 Spring Security 過濾器之前執行，JwtFilter 的日誌才會帶有 request id
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class RequestIdFilter extends OncePerRequestFilter {
+
+    /** request id 的 HTTP header */
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    /** MDC 中 request id 的 key（logback-spring.xml 的 pattern 使用） */
+    public static final String MDC_REQUEST_ID_KEY = "requestId";
+
+    /** 外部傳入 request id 的允許格式（避免任意內容寫入日誌） */
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final RequestTraceRegistry requestTraceRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || !VALID_REQUEST_ID.matcher(requestId).matches()) {
+            requestId = UUID.randomUUID().toString();
+        }
+
+        MDC.put(MDC_REQUEST_ID_KEY, requestId);
+        if (requestTraceRegistry.shouldTrace(requestId)) {
+            MDC.put(RequestTraceTurboFilter.MDC_TRACE_KEY, "true");
+        }
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_REQUEST_ID_KEY);
+            MDC.remove(RequestTraceTurboFilter.MDC_TRACE_KEY);
+        }
+    }
+}
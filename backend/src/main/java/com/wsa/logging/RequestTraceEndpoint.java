@@ -0,0 +1,44 @@
+package com.wsa.logging;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 請求追蹤 actuator 端點
+ * 執行期間開啟或關閉單一 request id 的完整除錯日誌
+ *
+ * 使用方式：
+ *   - GET    /actuator/requesttrace              列出追蹤中的 request id
+ *   - POST   /actuator/requesttrace/{requestId}  開始追蹤（請求需帶 X-Request-Id header）
+ *   - DELETE /actuator/requesttrace/{requestId}  停止追蹤
+ */
+@Component
+@Endpoint(id = "requesttrace")
+@RequiredArgsConstructor
+public class RequestTraceEndpoint {
+
+    private final RequestTraceRegistry requestTraceRegistry;
+
+    @ReadOperation
+    public Map<String, Long> tracedRequests() {
+        return requestTraceRegistry.getTracedRequestIds();
+    }
+
+    @WriteOperation
+    public Map<String, Object> enable(@Selector String requestId) {
+        boolean enabled = requestTraceRegistry.enable(requestId);
+        return Map.of("requestId", requestId, "enabled", enabled);
+    }
+
+    @DeleteOperation
+    public void disable(@Selector String requestId) {
+        requestTraceRegistry.disable(requestId);
+    }
+}
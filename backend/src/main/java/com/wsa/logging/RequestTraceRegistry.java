@@ -0,0 +1,88 @@
+package com.wsa.logging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 請求追蹤設定
+ * 決定哪些請求要輸出完整的除錯日誌（認證流程、SQL 等）
+ *
+ * 追蹤方式：
+ *   1. 執行期間透過 actuator 端點（/actuator/requesttrace/{requestId}）指定單一 request id
+ *   2. 依取樣比例（logging.request-trace.sample-rate）隨機挑選請求
+ *
+ * 注意：
+ *   - 指定的 request id 有存活時間，且數量有上限，避免忘記關閉
+ */
+@Component
+public class RequestTraceRegistry {
+
+    /** 同時追蹤的 request id 上限 */
+    private static final int MAX_TRACED_REQUESTS = 100;
+
+    /** 指定的 request id → 到期時間（epoch 毫秒） */
+    private final Map<String, Long> tracedRequestIds = new ConcurrentHashMap<>();
+
+    /** 取樣比例（0.0 ~ 1.0） */
+    @Value("${logging.request-trace.sample-rate:0.0}")
+    private double sampleRate;
+
+    /** 指定 request id 的追蹤存活時間（毫秒） */
+    @Value("${logging.request-trace.ttl-ms:600000}")
+    private long ttlMillis;
+
+    /**
+     * 判斷請求是否需要追蹤
+     *
+     * @param requestId request id
+     * @return true 表示輸出完整的除錯日誌
+     */
+    public boolean shouldTrace(String requestId) {
+        Long expiresAt = tracedRequestIds.get(requestId);
+        if (expiresAt != null) {
+            if (expiresAt > System.currentTimeMillis()) {
+                return true;
+            }
+            tracedRequestIds.remove(requestId, expiresAt);
+        }
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * 開始追蹤指定的 request id
+     *
+     * @param requestId request id
+     * @return true 表示已開始追蹤，false 表示已達上限
+     */
+    public boolean enable(String requestId) {
+        long now = System.currentTimeMillis();
+        tracedRequestIds.values().removeIf(expiresAt -> expiresAt <= now);
+        if (tracedRequestIds.size() >= MAX_TRACED_REQUESTS && !tracedRequestIds.containsKey(requestId)) {
+            return false;
+        }
+        tracedRequestIds.put(requestId, now + ttlMillis);
+        return true;
+    }
+
+    /**
+     * 停止追蹤指定的 request id
+     *
+     * @param requestId request id
+     */
+    public void disable(String requestId) {
+        tracedRequestIds.remove(requestId);
+    }
+
+    /**
+     * 取得目前追蹤中的 request id 與到期時間
+     *
+     * @return request id → 到期時間（epoch 毫秒）
+     */
+    public Map<String, Long> getTracedRequestIds() {
+        return Map.copyOf(tracedRequestIds);
+    }
+}
@@ -0,0 +1,29 @@
+package com.wsa.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * 請求追蹤 Logback TurboFilter
+ * 被追蹤的請求（MDC traceRequest = true）不受 logger 等級限制，輸出 DEBUG 以上的所有日誌；
+ * 其他請求維持原本的 logger 等級
+ *
+ * 注意：由 logback-spring.xml 註冊，不是 Spring bean
+ */
+public class RequestTraceTurboFilter extends TurboFilter {
+
+    /** MDC 中標記此請求需要追蹤的 key */
+    public static final String MDC_TRACE_KEY = "traceRequest";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != null && level.isGreaterOrEqual(Level.DEBUG) && "true".equals(MDC.get(MDC_TRACE_KEY))) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
@@ -2,6 +2,7 @@ package com.wsa.repository;
 
 import com.wsa.entity.Course;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -21,4 +22,13 @@ public interface CourseRepository extends JpaRepository<Course, UUID> {
      * @return 課程資料（若存在）
      */
     Optional<Course> findByCode(String code);
+
+    /**
+     * 查詢目前資料庫的課程目錄版本
+     * 課程與單元只會透過 Flyway migration 變更，因此以最新的 migration 序號作為版本
+     *
+     * @return 最新的 migration 序號（尚未執行任何 migration 時為 null）
+     */
+    @Query(value = "SELECT MAX(installed_rank) FROM flyway_schema_history WHERE success", nativeQuery = true)
+    Long findCatalogVersion();
 }
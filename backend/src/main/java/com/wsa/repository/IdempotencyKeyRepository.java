@@ -0,0 +1,116 @@
+package com.wsa.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * 冪等鍵（idempotency_keys）存取
+ * 所有執行個體共用，同一個冪等鍵只會有一個請求取得並執行
+ *
+ * 重要：
+ *   - 每個方法各自為獨立的語句（不在呼叫端的交易中），取得的冪等鍵立即對其他執行個體可見
+ *   - 時間一律使用資料庫的 now()，不受各執行個體時鐘差異影響
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    /** 新增冪等鍵；已存在但已過期（含租約到期的執行中項目）時接手 */
+    private static final String CLAIM_SQL =
+        "INSERT INTO idempotency_keys (scope_key, fingerprint, expires_at) " +
+        "VALUES (?, ?, now() + ? * interval '1 millisecond') " +
+        "ON CONFLICT (scope_key) DO UPDATE SET " +
+        "  fingerprint = EXCLUDED.fingerprint, response = NULL, " +
+        "  expires_at = EXCLUDED.expires_at, created_at = now() " +
+        "WHERE idempotency_keys.expires_at <= now()";
+
+    private static final String FIND_SQL =
+        "SELECT fingerprint, response::text AS response FROM idempotency_keys " +
+        "WHERE scope_key = ? AND expires_at > now()";
+
+    private static final String COMPLETE_SQL =
+        "UPDATE idempotency_keys SET response = ?::jsonb, expires_at = now() + ? * interval '1 millisecond' " +
+        "WHERE scope_key = ? AND response IS NULL";
+
+    private static final String RELEASE_SQL =
+        "DELETE FROM idempotency_keys WHERE scope_key = ? AND response IS NULL";
+
+    private static final String DELETE_EXPIRED_SQL =
+        "DELETE FROM idempotency_keys " +
+        "WHERE scope_key IN (SELECT scope_key FROM idempotency_keys WHERE expires_at <= now() LIMIT ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 嘗試取得冪等鍵（標記為執行中）
+     *
+     * @param scopeKey 範圍鍵
+     * @param fingerprint 請求內容摘要
+     * @param leaseMillis 執行中的租約時間（毫秒），到期後其他請求可接手
+     * @return true 表示取得，由呼叫端執行操作
+     */
+    public boolean tryClaim(String scopeKey, String fingerprint, long leaseMillis) {
+        return jdbcTemplate.update(CLAIM_SQL, scopeKey, fingerprint, leaseMillis) > 0;
+    }
+
+    /**
+     * 查詢尚未過期的冪等鍵
+     *
+     * @param scopeKey 範圍鍵
+     * @return 冪等鍵（不存在或已過期時為 empty）
+     */
+    public Optional<StoredKey> find(String scopeKey) {
+        return jdbcTemplate.query(FIND_SQL, (rs, rowNum) -> new StoredKey(
+            rs.getString("fingerprint"),
+            rs.getString("response")), scopeKey).stream().findFirst();
+    }
+
+    /**
+     * 保存執行結果
+     *
+     * @param scopeKey 範圍鍵
+     * @param responseJson 執行結果（JSON）
+     * @param ttlMillis 結果保存時間（毫秒）
+     */
+    public void complete(String scopeKey, String responseJson, long ttlMillis) {
+        jdbcTemplate.update(COMPLETE_SQL, responseJson, ttlMillis, scopeKey);
+    }
+
+    /**
+     * 釋放執行中的冪等鍵（執行失敗時呼叫，用戶端可用同一個冪等鍵重試）
+     *
+     * @param scopeKey 範圍鍵
+     */
+    public void release(String scopeKey) {
+        jdbcTemplate.update(RELEASE_SQL, scopeKey);
+    }
+
+    /**
+     * 刪除一批已過期的冪等鍵
+     *
+     * @param limit 本批最多刪除的筆數
+     * @return 實際刪除的筆數
+     */
+    public int deleteExpired(int limit) {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, limit);
+    }
+
+    /**
+     * 已保存的冪等鍵
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class StoredKey {
+
+        /** 請求內容摘要 */
+        private final String fingerprint;
+
+        /** 執行結果（JSON，執行中時為 null） */
+        private final String response;
+    }
+}
@@ -0,0 +1,49 @@
+package com.wsa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 訂單批次操作
+ * 以單一 SQL 語句處理多筆訂單，不需將訂單逐筆載入記憶體
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderBatchRepository {
+
+    /**
+     * 取消一批已過期的待付款訂單
+     * 子查詢使用 FOR UPDATE SKIP LOCKED：正在付款（OrderService.payOrder 以 FOR UPDATE 鎖定）的訂單會被略過，
+     * 多個執行個體也可同時執行
+     * 直接以 JDBC 更新，不經過 JPA 的 @UpdateTimestamp，因此明確設定 updated_at
+     */
+    private static final String CANCEL_EXPIRED_SQL =
+        "UPDATE orders SET status = 'CANCELLED', memo = ?, updated_at = now() " +
+        "WHERE id IN (" +
+        "  SELECT id FROM orders " +
+        "  WHERE status = 'PENDING' AND pay_deadline < ? " +
+        "  ORDER BY pay_deadline " +
+        "  LIMIT ? " +
+        "  FOR UPDATE SKIP LOCKED" +
+        ") " +
+        "RETURNING order_no";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 取消一批付款期限早於指定時間的待付款訂單（最多 chunkSize 筆）
+     *
+     * @param now 目前時間（付款期限早於此時間視為過期）
+     * @param memo 取消原因備註
+     * @param chunkSize 本批最多取消的筆數
+     * @return 已取消的訂單編號
+     */
+    public List<String> cancelExpiredOrders(LocalDateTime now, String memo, int chunkSize) {
+        return jdbcTemplate.queryForList(CANCEL_EXPIRED_SQL, String.class, memo, Timestamp.valueOf(now), chunkSize);
+    }
+}
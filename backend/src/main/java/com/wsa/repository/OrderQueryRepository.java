@@ -0,0 +1,111 @@
+package com.wsa.repository;
+
+import com.wsa.entity.Order;
+import com.wsa.repository.projection.OrderWithCourseTitle;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 訂單查詢
+ * 訂單列表與課程名稱以單一 JOIN 查詢取得，排序鍵為 (createdAt DESC, id DESC)；
+ * 付款時以 SELECT ... FOR UPDATE 鎖定訂單
+ */
+@Repository
+public interface OrderQueryRepository extends JpaRepository<Order, UUID> {
+
+    /**
+     * 查詢使用者的訂單（含課程名稱），依建立時間由新到舊排列
+     *
+     * @param userId 使用者 ID
+     * @param pageable 筆數限制（只使用 pageSize，排序已固定在查詢中）
+     * @return 訂單與課程名稱列表
+     */
+    @Query("SELECT new com.wsa.repository.projection.OrderWithCourseTitle(o, c.title) " +
+           "FROM Order o JOIN Course c ON c.id = o.courseId " +
+           "WHERE o.userId = :userId " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderWithCourseTitle> findByUserIdWithCourseTitle(@Param("userId") UUID userId, Pageable pageable);
+
+    /**
+     * 以 keyset 分頁查詢使用者的訂單（含課程名稱）
+     * 從游標位置（上一頁最後一筆）之後開始查詢
+     *
+     * @param userId 使用者 ID
+     * @param createdAt 上一頁最後一筆的建立時間
+     * @param id 上一頁最後一筆的訂單 ID
+     * @param pageable 筆數限制（只使用 pageSize）
+     * @return 訂單與課程名稱列表
+     */
+    @Query("SELECT new com.wsa.repository.projection.OrderWithCourseTitle(o, c.title) " +
+           "FROM Order o JOIN Course c ON c.id = o.courseId " +
+           "WHERE o.userId = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderWithCourseTitle> findByUserIdWithCourseTitleAfter(@Param("userId") UUID userId,
+                                                                @Param("createdAt") LocalDateTime createdAt,
+                                                                @Param("id") UUID id,
+                                                                Pageable pageable);
+
+    /**
+     * 以訂單編號查詢訂單（含課程名稱）
+     *
+     * @param orderNo 訂單編號
+     * @return 訂單與課程名稱（若存在）
+     */
+    @Query("SELECT new com.wsa.repository.projection.OrderWithCourseTitle(o, c.title) " +
+           "FROM Order o JOIN Course c ON c.id = o.courseId " +
+           "WHERE o.orderNo = :orderNo")
+    Optional<OrderWithCourseTitle> findByOrderNoWithCourseTitle(@Param("orderNo") String orderNo);
+
+    /**
+     * 查詢課程的訂單（含課程名稱），依建立時間由新到舊排列
+     *
+     * @param courseId 課程 ID
+     * @return 訂單與課程名稱列表
+     */
+    @Query("SELECT new com.wsa.repository.projection.OrderWithCourseTitle(o, c.title) " +
+           "FROM Order o JOIN Course c ON c.id = o.courseId " +
+           "WHERE o.courseId = :courseId " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderWithCourseTitle> findByCourseIdWithCourseTitle(@Param("courseId") UUID courseId);
+
+    /**
+     * 查詢使用者尚未過期的待付款訂單（含課程名稱）
+     *
+     * @param userId 使用者 ID
+     * @param status 訂單狀態（PENDING）
+     * @param now 目前時間
+     * @return 訂單與課程名稱列表
+     */
+    @Query("SELECT new com.wsa.repository.projection.OrderWithCourseTitle(o, c.title) " +
+           "FROM Order o JOIN Course c ON c.id = o.courseId " +
+           "WHERE o.userId = :userId AND o.status = :status AND o.payDeadline > :now " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderWithCourseTitle> findPendingByUserIdWithCourseTitle(@Param("userId") UUID userId,
+                                                                  @Param("status") Order.Status status,
+                                                                  @Param("now") LocalDateTime now);
+
+    /**
+     * 以訂單編號查詢並鎖定訂單（SELECT ... FOR UPDATE）
+     * 用途：付款時鎖定訂單列，過期取消排程（FOR UPDATE SKIP LOCKED）會略過付款中的訂單；
+     * 若排程已先鎖定並取消，付款會等待其提交後讀到 CANCELLED
+     *
+     * 注意：必須在交易中呼叫
+     *
+     * @param orderNo 訂單編號
+     * @return 訂單（若存在）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.orderNo = :orderNo")
+    Optional<Order> findByOrderNoForUpdate(@Param("orderNo") String orderNo);
+}
@@ -1,7 +1,10 @@
 package com.wsa.repository;
 
 import com.wsa.entity.Unit;
+import com.wsa.repository.projection.UnitDetailView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -30,4 +33,31 @@ public interface UnitRepository extends JpaRepository<Unit, UUID> {
      * @return 單元列表
      */
     List<Unit> findByCourseIdOrderByOrderIndexAsc(UUID courseId);
+
+    /**
+     * 以單一查詢取得單元詳情（含課程代碼與標題、使用者的課程擁有權與單元進度）
+     *
+     * 說明：
+     * - user_courses 與 user_unit_progress 都有 UNIQUE(user_id, ...)，LEFT JOIN 最多對應一列
+     * - userId 為 null（未登入）時兩個 LEFT JOIN 都不會對應，owned / completed 為 false
+     *
+     * @param unitId 單元對外 ID
+     * @param userId 使用者 UUID（可為 null）
+     * @return 單元詳情（單元不存在時為 empty）
+     */
+    @Query(value = """
+        SELECT un.id, un.unit_id AS "unitId", c.code AS "courseCode", c.title AS "courseTitle",
+               un.section_title AS "sectionTitle", un.title, un.type,
+               un.order_index AS "orderIndex", un.order_in_section AS "orderInSection",
+               un.video_url AS "videoUrl", un.xp_reward AS "xpReward", un.is_free_preview AS "isFreePreview",
+               (uc.id IS NOT NULL) AS owned,
+               (p.completed_at IS NOT NULL) AS completed,
+               p.last_position_seconds AS "lastPositionSeconds"
+        FROM units un
+        JOIN courses c ON c.id = un.course_id
+        LEFT JOIN user_courses uc ON uc.course_id = un.course_id AND uc.user_id = CAST(:userId AS uuid)
+        LEFT JOIN user_unit_progress p ON p.unit_id = un.id AND p.user_id = CAST(:userId AS uuid)
+        WHERE un.unit_id = :unitId
+        """, nativeQuery = true)
+    Optional<UnitDetailView> findUnitDetail(@Param("unitId") String unitId, @Param("userId") UUID userId);
 }
@@ -3,11 +3,14 @@ package com.wsa.repository;
 import com.wsa.entity.UserCourse;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -34,6 +37,16 @@ public interface UserCourseRepository extends JpaRepository<UserCourse, UUID> {
      */
     List<UserCourse> findAllByUserId(UUID userId);
 
+    /**
+     * 查詢使用者擁有的所有課程 ID（只取 course_id，一次查詢取得）
+     * 用途：課程列表一次計算所有課程的擁有狀態，避免逐門課程查詢
+     *
+     * @param userId 使用者 ID
+     * @return 使用者擁有的課程 ID 集合
+     */
+    @Query("SELECT uc.courseId FROM UserCourse uc WHERE uc.userId = :userId")
+    Set<UUID> findCourseIdsByUserId(@Param("userId") UUID userId);
+
     /**
      * 查詢特定課程的所有擁有者
      *
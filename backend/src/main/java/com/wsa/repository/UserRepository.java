@@ -1,13 +1,22 @@
 package com.wsa.repository;
 
 import com.wsa.entity.User;
+import com.wsa.repository.projection.LeaderboardRowView;
+import com.wsa.repository.projection.UserXpLevelView;
+import com.wsa.repository.projection.UserXpView;
+import com.wsa.repository.projection.WeeklySnapshotCursorView;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -37,6 +46,33 @@ public interface UserRepository extends JpaRepository<User, UUID> {
      */
     Optional<User> findByEmail(String email);
 
+    /**
+     * 根據 ID 查詢並鎖定使用者（SELECT ... FOR UPDATE）
+     * 用途：重置使用者資料時先鎖定使用者列，套用經驗值事件（XpService.applyPendingEvents）
+     * 鎖定同一列，會等待重置提交後才讀到重置時間與重置後的經驗值
+     *
+     * 注意：必須在交易中呼叫
+     *
+     * @param id 使用者 UUID
+     * @return 使用者資料（若存在）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(@Param("id") UUID id);
+
+    /**
+     * 記錄使用者的經驗值重置時間（資料庫目前時間）
+     * 建立時間不晚於此時間的 xp_events 不會再被套用（見 XpEventRepository.lockUsers）
+     *
+     * 注意：使用 clock_timestamp() 而非 NOW()，取得執行當下的時間而非交易開始時間；
+     * xp_reset_at 不對應到 User 實體，儲存實體不會覆寫此欄位
+     *
+     * @param userId 使用者 UUID
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET xp_reset_at = clock_timestamp() WHERE id = :userId", nativeQuery = true)
+    void markXpReset(@Param("userId") UUID userId);
+
     /**
      * 計算總經驗值大於指定值的使用者數量
      * 用於計算排行榜排名
@@ -47,13 +83,14 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     long countByTotalXpGreaterThan(Integer totalXp);
 
     /**
-     * 計算本週經驗值大於指定值的使用者數量
-     * 用於計算排行榜排名
+     * 計算指定週次中本週經驗值大於指定值的使用者數量
+     * 用於計算排行榜排名（weeklyXpWeek 不符的經驗值視為 0，不會被計入）
      *
      * @param weeklyXp 本週經驗值
+     * @param weeklyXpWeek 週次
      * @return 使用者數量
      */
-    long countByWeeklyXpGreaterThan(Integer weeklyXp);
+    long countByWeeklyXpGreaterThanAndWeeklyXpWeek(Integer weeklyXp, Integer weeklyXpWeek);
 
     /**
      * 查詢本週經驗值大於指定值的使用者（支援分頁和排序）
@@ -65,25 +102,304 @@ public interface UserRepository extends JpaRepository<User, UUID> {
      */
     Page<User> findByWeeklyXpGreaterThan(Integer weeklyXp, Pageable pageable);
 
+    /**
+     * 使用 offset 和 limit 查詢本週排行榜
+     * 依照本週經驗值降序、建立時間升序、id 排列，只查詢指定週次中 weeklyXp > 0 的使用者
+     *
+     * @param limit 回傳筆數
+     * @param offset 跳過筆數
+     * @param week 週次
+     * @return 使用者列表
+     */
+    @Query(value = "SELECT * FROM users WHERE weekly_xp > 0 AND weekly_xp_week = :week ORDER BY weekly_xp DESC, created_at ASC, id LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<User> findByWeeklyXpGreaterThanZeroWithOffset(@Param("limit") int limit, @Param("offset") int offset, @Param("week") int week);
+
     /**
      * 使用 offset 和 limit 查詢總排行榜
-     * 依照總經驗值降序、建立時間升序排列
+     * 依照總經驗值降序、建立時間升序、id 排列（使用 idx_users_total_xp_keyset 索引，只讀取 offset + limit 筆）
+     * 用於排名索引已預熱時的 offset 分頁：排名與總人數由 LeaderboardRankIndex 計算
      *
      * @param limit 回傳筆數
      * @param offset 跳過筆數
      * @return 使用者列表
      */
-    @Query(value = "SELECT * FROM users ORDER BY total_xp DESC, created_at ASC LIMIT :limit OFFSET :offset", nativeQuery = true)
+    @Query(value = "SELECT * FROM users ORDER BY total_xp DESC, created_at ASC, id LIMIT :limit OFFSET :offset", nativeQuery = true)
     List<User> findAllOrderByTotalXpWithOffset(@Param("limit") int limit, @Param("offset") int offset);
 
     /**
-     * 使用 offset 和 limit 查詢本週排行榜
-     * 依照本週經驗值降序、建立時間升序排列，只查詢 weeklyXp > 0 的使用者
+     * 使用 keyset（seek）分頁查詢總排行榜
+     * 從游標位置 (totalXp, createdAt, id) 之後開始，依照總經驗值降序、建立時間升序、id 排列
+     * 使用 idx_users_total_xp_keyset 索引，查詢成本不隨頁數增加
+     *
+     * 注意：total_xp <= :totalXp 與後面的 OR 條件重複，但 PostgreSQL 只能把這個條件當作索引的起始範圍；
+     * 只有 OR 條件時會從索引開頭掃描
      *
+     * @param totalXp 上一頁最後一筆的總經驗值
+     * @param createdAt 上一頁最後一筆的建立時間
+     * @param id 上一頁最後一筆的使用者 ID
+     * @param limit 回傳筆數
+     * @return 使用者列表
+     */
+    @Query(value = """
+        SELECT * FROM users
+        WHERE total_xp <= :totalXp
+          AND (total_xp < :totalXp
+               OR (total_xp = :totalXp AND (created_at > :createdAt OR (created_at = :createdAt AND id > :id))))
+        ORDER BY total_xp DESC, created_at ASC, id
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<User> findAllOrderByTotalXpAfter(@Param("totalXp") int totalXp,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") UUID id,
+                                          @Param("limit") int limit);
+
+    /**
+     * 使用 keyset（seek）分頁查詢本週排行榜
+     * 從游標位置 (weeklyXp, createdAt, id) 之後開始，只查詢指定週次中 weeklyXp > 0 的使用者
+     * 使用 idx_users_weekly_xp_keyset 索引，查詢成本不隨頁數增加（weekly_xp <= :weeklyXp 作為索引起始範圍）
+     *
+     * @param weeklyXp 上一頁最後一筆的本週經驗值
+     * @param createdAt 上一頁最後一筆的建立時間
+     * @param id 上一頁最後一筆的使用者 ID
+     * @param week 週次
      * @param limit 回傳筆數
-     * @param offset 跳過筆數
      * @return 使用者列表
      */
-    @Query(value = "SELECT * FROM users WHERE weekly_xp > 0 ORDER BY weekly_xp DESC, created_at ASC LIMIT :limit OFFSET :offset", nativeQuery = true)
-    List<User> findByWeeklyXpGreaterThanZeroWithOffset(@Param("limit") int limit, @Param("offset") int offset);
+    @Query(value = """
+        SELECT * FROM users
+        WHERE weekly_xp > 0 AND weekly_xp_week = :week
+          AND weekly_xp <= :weeklyXp
+          AND (weekly_xp < :weeklyXp
+               OR (weekly_xp = :weeklyXp AND (created_at > :createdAt OR (created_at = :createdAt AND id > :id))))
+        ORDER BY weekly_xp DESC, created_at ASC, id
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<User> findByWeeklyXpGreaterThanZeroAfter(@Param("weeklyXp") int weeklyXp,
+                                                  @Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") UUID id,
+                                                  @Param("week") int week,
+                                                  @Param("limit") int limit);
+
+    /**
+     * 查詢所有使用者的經驗值（只取 id、totalXp、weeklyXp、週次與版本）
+     * 用於啟動時建立排行榜排名索引
+     *
+     * @return 使用者經驗值投影列表
+     */
+    @Query("SELECT u.id AS id, u.totalXp AS totalXp, u.weeklyXp AS weeklyXp, u.weeklyXpWeek AS weeklyXpWeek, " +
+           "u.xpVersion AS xpVersion FROM User u")
+    List<UserXpView> findAllXp();
+
+    /**
+     * 原子地為使用者增加經驗值，並在同一個語句中計算新等級
+     * 用於取代「載入 User → 在 Java 中修改 → save」的讀改寫流程，避免並行完成單元時遺失更新
+     *
+     * 重要：
+     *   - 若 weekly_xp_week 早於指定週次，本週經驗值從 0 重新累計
+     *   - 若 weekly_xp_week 晚於指定週次（非同步套用較晚送達的舊週次事件），只增加總經驗值
+     *   - 等級由 xp_levels 門檻表計算（與 XpService.LEVEL_THRESHOLDS 相同）
+     *   - xp_version 加 1（排行榜排名索引依此判斷變更先後）
+     *   - 同一個語句中累加 user_weekly_xp 指定週次的經驗值（每週排行榜快照來源，舊週次事件也計入該週）
+     *   - 使用 RETURNING 取回更新後的值，因此不使用 @Modifying；必須在可寫入的交易中執行
+     *
+     * @param userId 使用者 UUID
+     * @param xp 要增加的經驗值
+     * @param week 經驗值所屬的週次（通常為目前週次）
+     * @return 更新後的經驗值與等級（找不到使用者時為 empty）
+     */
+    @Transactional
+    @Query(value = "WITH weekly AS (" +
+                   "  INSERT INTO user_weekly_xp (week, user_id, weekly_xp) " +
+                   "  SELECT :week, id, :xp FROM users WHERE id = :userId " +
+                   "  ON CONFLICT (week, user_id) DO UPDATE SET weekly_xp = user_weekly_xp.weekly_xp + EXCLUDED.weekly_xp" +
+                   ") " +
+                   "UPDATE users u SET " +
+                   "total_xp = u.total_xp + :xp, " +
+                   "weekly_xp = CASE WHEN u.weekly_xp_week = :week THEN u.weekly_xp + :xp " +
+                   "                 WHEN u.weekly_xp_week > :week THEN u.weekly_xp ELSE :xp END, " +
+                   "weekly_xp_week = GREATEST(u.weekly_xp_week, :week), " +
+                   "level = (SELECT COALESCE(MAX(l.level), 1) FROM xp_levels l WHERE l.min_xp <= u.total_xp + :xp), " +
+                   "xp_version = u.xp_version + 1, " +
+                   "updated_at = now() " +
+                   "WHERE u.id = :userId " +
+                   "RETURNING u.id AS id, u.total_xp AS \"totalXp\", u.weekly_xp AS \"weeklyXp\", " +
+                   "u.weekly_xp_week AS \"weeklyXpWeek\", u.xp_version AS \"xpVersion\", u.level AS level",
+           nativeQuery = true)
+    Optional<UserXpLevelView> incrementXp(@Param("userId") UUID userId, @Param("xp") int xp, @Param("week") int week);
+
+    /**
+     * 刪除使用者指定週次的每週經驗值
+     * 用途：重置使用者資料時，本週經驗值歸零
+     *
+     * @param userId 使用者 UUID
+     * @param week 週次
+     */
+    @Modifying
+    @Query(value = "DELETE FROM user_weekly_xp WHERE user_id = :userId AND week = :week", nativeQuery = true)
+    void deleteWeeklyXp(@Param("userId") UUID userId, @Param("week") int week);
+
+    /**
+     * 刪除一批早於指定週次的每週經驗值（快照寫入完成後清除）
+     *
+     * @param week 週次（不含）
+     * @param batchSize 本批筆數
+     * @return 實際刪除的筆數
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        DELETE FROM user_weekly_xp
+        WHERE (week, user_id) IN (
+            SELECT week, user_id FROM user_weekly_xp WHERE week < :week LIMIT :batchSize
+        )
+        """, nativeQuery = true)
+    int deleteWeeklyXpBefore(@Param("week") int week, @Param("batchSize") int batchSize);
+
+    /**
+     * 計算指定週次已寫入快照的筆數
+     *
+     * @param week 週次
+     * @return 快照筆數
+     */
+    @Query(value = "SELECT COUNT(*) FROM weekly_leaderboard_snapshots WHERE week = :week", nativeQuery = true)
+    long countWeeklySnapshots(@Param("week") int week);
+
+    /**
+     * 查詢指定週次已寫入快照中排序最後的一筆（續寫位置）
+     *
+     * @param week 週次
+     * @return 最後一筆的經驗值與使用者 ID（尚未寫入時為 empty）
+     */
+    @Query(value = """
+        SELECT weekly_xp AS "weeklyXp", user_id AS "userId"
+        FROM weekly_leaderboard_snapshots
+        WHERE week = :week
+        ORDER BY weekly_xp ASC, user_id DESC
+        LIMIT 1
+        """, nativeQuery = true)
+    Optional<WeeklySnapshotCursorView> findLastWeeklySnapshot(@Param("week") int week);
+
+    /**
+     * 將指定週次排行榜的一批名次寫入快照表
+     * 從 user_weekly_xp 依照該週經驗值降序、使用者 ID 升序，寫入續寫位置之後的 batchSize 名
+     *
+     * 注意：
+     * - 資料來源以週次為鍵，換週後不再變更（不受使用者在新的一週取得經驗值影響）
+     * - keyset 分頁（使用 idx_user_weekly_xp_week_xp）：批次之間不會因名次變動而略過或重複
+     * - 名次為經驗值較高的人數 + 1（與 RANK() 相同，同分同名次）
+     * - ON CONFLICT DO NOTHING：中斷後重跑不會重複寫入
+     *
+     * @param week 週次
+     * @param afterXp 續寫位置的經驗值（第一批傳 Integer.MAX_VALUE）
+     * @param afterUserId 續寫位置的使用者 ID
+     * @param batchSize 本批筆數
+     * @return 實際寫入的筆數
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO weekly_leaderboard_snapshots (week, rank, user_id, weekly_xp)
+        SELECT :week,
+               1 + (SELECT COUNT(*) FROM user_weekly_xp h WHERE h.week = :week AND h.weekly_xp > w.weekly_xp),
+               w.user_id, w.weekly_xp
+        FROM user_weekly_xp w
+        WHERE w.week = :week
+          AND w.weekly_xp > 0
+          AND (w.weekly_xp < :afterXp OR (w.weekly_xp = :afterXp AND w.user_id > :afterUserId))
+        ORDER BY w.weekly_xp DESC, w.user_id
+        LIMIT :batchSize
+        ON CONFLICT (week, user_id) DO NOTHING
+        """, nativeQuery = true)
+    int archiveWeeklyLeaderboardBatch(@Param("week") int week, @Param("afterXp") int afterXp,
+                                      @Param("afterUserId") UUID afterUserId, @Param("batchSize") int batchSize);
+
+    /**
+     * 以單一查詢取得總排行榜分頁（含排名、總人數與當前使用者列）
+     * 只在排名索引尚未預熱時使用：RANK() OVER 與 COUNT(*) OVER () 需要掃描並排序整個 users 表
+     *
+     * 說明：
+     * - ranked：以 RANK() OVER 計算每位使用者的排名，COUNT(*) OVER () 取得總人數
+     * - page：依 (total_xp DESC, created_at ASC, id) 取出分頁資料（currentUser = false）
+     * - 當前使用者列以 currentUser = true 附加在最後（未登入時不回傳）
+     *
+     * @param limit 回傳筆數
+     * @param offset 跳過筆數
+     * @param currentUserId 當前使用者 ID（可為 null）
+     * @param week 目前週次（用於換算本週經驗值）
+     * @return 分頁資料列與當前使用者列
+     */
+    @Query(value = """
+        WITH ranked AS (
+            SELECT u.id, u.display_name, u.avatar_url, u.level, u.total_xp,
+                   CASE WHEN u.weekly_xp_week = :week THEN u.weekly_xp ELSE 0 END AS weekly_xp,
+                   u.created_at,
+                   RANK() OVER (ORDER BY u.total_xp DESC) AS rank,
+                   COUNT(*) OVER () AS total_count
+            FROM users u
+        ),
+        page AS (
+            SELECT * FROM ranked
+            ORDER BY total_xp DESC, created_at ASC, id
+            LIMIT :limit OFFSET :offset
+        )
+        SELECT id, display_name AS "displayName", avatar_url AS "avatarUrl", level,
+               total_xp AS "totalXp", weekly_xp AS "weeklyXp", created_at AS "createdAt",
+               rank, total_count AS "totalCount", FALSE AS "currentUser"
+        FROM page
+        UNION ALL
+        SELECT id, display_name, avatar_url, level, total_xp, weekly_xp, created_at,
+               rank, total_count, TRUE
+        FROM ranked
+        WHERE id = CAST(:currentUserId AS uuid)
+        ORDER BY "currentUser", "totalXp" DESC, "createdAt" ASC, id
+        """, nativeQuery = true)
+    List<LeaderboardRowView> findTotalXpLeaderboardPage(@Param("limit") int limit,
+                                                        @Param("offset") int offset,
+                                                        @Param("currentUserId") UUID currentUserId,
+                                                        @Param("week") int week);
+
+    /**
+     * 以單一查詢取得本週排行榜分頁（含排名、總人數與當前使用者列）
+     * 只在排名索引尚未預熱時使用：RANK() OVER 與 COUNT(*) OVER () 需要掃描並排序本週所有上榜使用者
+     *
+     * 說明：
+     * - ranked：只包含本週（weekly_xp_week = :week）經驗值大於 0 的使用者
+     * - 當前使用者若本週沒有經驗值，rank 與 totalCount 為 null（顯示為 "-"）
+     *
+     * @param limit 回傳筆數
+     * @param offset 跳過筆數
+     * @param currentUserId 當前使用者 ID（可為 null）
+     * @param week 目前週次
+     * @return 分頁資料列與當前使用者列
+     */
+    @Query(value = """
+        WITH ranked AS (
+            SELECT u.id, u.display_name, u.avatar_url, u.level, u.total_xp, u.weekly_xp, u.created_at,
+                   RANK() OVER (ORDER BY u.weekly_xp DESC) AS rank,
+                   COUNT(*) OVER () AS total_count
+            FROM users u
+            WHERE u.weekly_xp > 0 AND u.weekly_xp_week = :week
+        ),
+        page AS (
+            SELECT * FROM ranked
+            ORDER BY weekly_xp DESC, created_at ASC, id
+            LIMIT :limit OFFSET :offset
+        )
+        SELECT id, display_name AS "displayName", avatar_url AS "avatarUrl", level,
+               total_xp AS "totalXp", weekly_xp AS "weeklyXp", created_at AS "createdAt",
+               rank, total_count AS "totalCount", FALSE AS "currentUser"
+        FROM page
+        UNION ALL
+        SELECT u.id, u.display_name, u.avatar_url, u.level, u.total_xp,
+               CASE WHEN u.weekly_xp_week = :week THEN u.weekly_xp ELSE 0 END,
+               u.created_at, r.rank, r.total_count, TRUE
+        FROM users u
+        LEFT JOIN ranked r ON r.id = u.id
+        WHERE u.id = CAST(:currentUserId AS uuid)
+        ORDER BY "currentUser", "weeklyXp" DESC, "createdAt" ASC, id
+        """, nativeQuery = true)
+    List<LeaderboardRowView> findWeeklyXpLeaderboardPage(@Param("limit") int limit,
+                                                         @Param("offset") int offset,
+                                                         @Param("currentUserId") UUID currentUserId,
+                                                         @Param("week") int week);
 }
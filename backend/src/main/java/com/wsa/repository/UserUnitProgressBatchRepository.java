@@ -0,0 +1,91 @@
+package com.wsa.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 使用者單元進度批次寫入
+ * 以 JDBC batch 一次寫入多筆觀看位置，供 ProgressWriteBuffer 定期 flush 使用
+ *
+ * 重要：
+ *   - 使用 INSERT ... ON CONFLICT (user_id, unit_id) DO UPDATE，不需要先查詢既有記錄
+ *   - 只更新 last_position_seconds 與 last_watched_at，不會修改 completed_at
+ *   - 只在寫入的 last_watched_at 比資料庫中的新時才更新：
+ *     不同執行個體緩衝的心跳或重試的舊批次不會覆蓋較新的位置
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserUnitProgressBatchRepository {
+
+    private static final String UPSERT_POSITION_SQL =
+        "INSERT INTO user_unit_progress (user_id, unit_id, last_position_seconds, last_watched_at, completed_at) " +
+        "VALUES (?, ?, ?, ?, NULL) " +
+        "ON CONFLICT (user_id, unit_id) DO UPDATE SET " +
+        "last_position_seconds = EXCLUDED.last_position_seconds, " +
+        "last_watched_at = EXCLUDED.last_watched_at " +
+        "WHERE user_unit_progress.last_watched_at IS NULL " +
+        "   OR user_unit_progress.last_watched_at < EXCLUDED.last_watched_at";
+
+    /** 每個 JDBC batch 的最大筆數 */
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批次寫入觀看位置（不存在時新增，已存在時更新）
+     *
+     * @param updates 觀看位置列表（同一個 user_id + unit_id 只能出現一次）
+     */
+    public void upsertPositions(List<PositionUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_POSITION_SQL, updates, BATCH_SIZE, (ps, update) -> {
+            ps.setObject(1, update.getUserId());
+            ps.setObject(2, update.getUnitId());
+            ps.setInt(3, update.getLastPositionSeconds());
+            ps.setTimestamp(4, Timestamp.valueOf(update.getLastWatchedAt()));
+        });
+    }
+
+    /**
+     * 寫入單筆觀看位置（批次寫入失敗時逐筆重試用）
+     *
+     * @param update 觀看位置
+     */
+    public void upsertPosition(PositionUpdate update) {
+        jdbcTemplate.update(UPSERT_POSITION_SQL,
+            update.getUserId(),
+            update.getUnitId(),
+            update.getLastPositionSeconds(),
+            Timestamp.valueOf(update.getLastWatchedAt()));
+    }
+
+    /**
+     * 一筆觀看位置更新
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PositionUpdate {
+
+        /** 使用者 UUID */
+        private final UUID userId;
+
+        /** 單元 UUID */
+        private final UUID unitId;
+
+        /** 最後觀看到的秒數 */
+        private final int lastPositionSeconds;
+
+        /** 最後觀看時間 */
+        private final LocalDateTime lastWatchedAt;
+    }
+}
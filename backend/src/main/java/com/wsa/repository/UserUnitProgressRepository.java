@@ -3,11 +3,14 @@ package com.wsa.repository;
 import com.wsa.entity.UserUnitProgress;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -43,6 +46,57 @@ public interface UserUnitProgressRepository extends JpaRepository<UserUnitProgre
      */
     boolean existsByUserIdAndUnitId(UUID userId, UUID unitId);
 
+    /**
+     * 查詢使用者已完成的所有單元 ID（單一查詢，不限課程）
+     * 用途：載入單元完成快取
+     *
+     * @param userId 使用者 UUID
+     * @return 已完成的單元 UUID 集合
+     */
+    @Query("SELECT p.unitId FROM UserUnitProgress p WHERE p.userId = :userId AND p.completedAt IS NOT NULL")
+    Set<UUID> findCompletedUnitIdsByUserId(@Param("userId") UUID userId);
+
+    /**
+     * 更新使用者觀看位置（單一語句 upsert）
+     * 不存在時新增（completed_at 為 null），已存在時只更新 last_position_seconds 與 last_watched_at
+     *
+     * 注意：以 ON CONFLICT 處理並行的心跳請求，不會違反 UNIQUE(user_id, unit_id)
+     *
+     * @param userId 使用者 UUID
+     * @param unitId 單元 UUID
+     * @param lastPositionSeconds 最後觀看到的秒數
+     * @return 影響筆數
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO user_unit_progress (user_id, unit_id, last_position_seconds, last_watched_at, completed_at) " +
+                   "VALUES (:userId, :unitId, :lastPositionSeconds, now(), NULL) " +
+                   "ON CONFLICT (user_id, unit_id) DO UPDATE SET " +
+                   "last_position_seconds = EXCLUDED.last_position_seconds, " +
+                   "last_watched_at = EXCLUDED.last_watched_at",
+           nativeQuery = true)
+    int upsertLastPosition(@Param("userId") UUID userId,
+                           @Param("unitId") UUID unitId,
+                           @Param("lastPositionSeconds") int lastPositionSeconds);
+
+    /**
+     * 標記單元為已完成（單一語句 upsert，可重複呼叫）
+     * 不存在時新增已完成的記錄；已存在但尚未完成時設定 completed_at；已完成則不變
+     *
+     * @param userId 使用者 UUID
+     * @param unitId 單元 UUID
+     * @return 1 表示此次呼叫才完成，0 表示先前已完成
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO user_unit_progress (user_id, unit_id, last_position_seconds, last_watched_at, completed_at) " +
+                   "VALUES (:userId, :unitId, 0, NULL, now()) " +
+                   "ON CONFLICT (user_id, unit_id) DO UPDATE SET " +
+                   "completed_at = COALESCE(user_unit_progress.completed_at, now()) " +
+                   "WHERE user_unit_progress.completed_at IS NULL",
+           nativeQuery = true)
+    int markCompleted(@Param("userId") UUID userId, @Param("unitId") UUID unitId);
+
     /**
      * 刪除使用者的所有單元進度記錄
      * 用途：重置使用者資料時使用
@@ -0,0 +1,203 @@
+package com.wsa.repository;
+
+import com.wsa.repository.projection.UserXpLevelView;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 經驗值事件（xp_events）存取
+ * 完成單元時新增事件，背景排程批次取出並套用到 users
+ *
+ * 重要：
+ *   - 取出事件使用 DELETE ... RETURNING，必須與套用到 users 的 UPDATE 在同一個交易中執行；
+ *     套用失敗時交易回滾，事件會保留到下一次排程
+ *   - 子查詢使用 FOR UPDATE SKIP LOCKED，多個執行個體可同時消費而不會重複套用
+ *   - 重置使用者資料無法刪除已被取出但尚未提交的事件，改由套用時以 users.xp_reset_at 捨棄重置前建立的事件
+ */
+@Repository
+@RequiredArgsConstructor
+public class XpEventRepository {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO xp_events (user_id, unit_id, xp_amount, week) VALUES (?, ?, ?, ?)";
+
+    private static final String CLAIM_BATCH_SQL =
+        "DELETE FROM xp_events " +
+        "WHERE id IN (" +
+        "  SELECT id FROM xp_events " +
+        "  ORDER BY id " +
+        "  LIMIT ? " +
+        "  FOR UPDATE SKIP LOCKED" +
+        ") " +
+        "RETURNING user_id, xp_amount, week, created_at";
+
+    private static final String HAS_PENDING_SQL =
+        "SELECT EXISTS (SELECT 1 FROM xp_events WHERE week <= ?)";
+
+    /** 略過已被消費者取出（鎖定）的事件，不等待消費者交易，避免與其鎖定 users 列互相死結 */
+    private static final String DELETE_BY_USER_SQL =
+        "DELETE FROM xp_events " +
+        "WHERE id IN (SELECT id FROM xp_events WHERE user_id = ? FOR UPDATE SKIP LOCKED)";
+
+    /** 依 UUID 排序鎖定，所有消費者的鎖定順序相同 */
+    private static final String LOCK_USERS_SQL =
+        "SELECT id, xp_reset_at FROM users WHERE id = ANY (?) ORDER BY id FOR UPDATE";
+
+    /**
+     * 使用者目前經驗值加上尚未套用的事件（不鎖定 users 列）
+     * 本週經驗值只計入指定週次的事件；等級由 xp_levels 門檻表計算
+     * 重置前建立的事件不計入（套用時也會被捨棄）
+     */
+    private static final String PROJECTED_XP_SQL =
+        "SELECT u.id, t.total_xp, t.weekly_xp, u.xp_version, " +
+        "  (SELECT COALESCE(MAX(l.level), 1) FROM xp_levels l WHERE l.min_xp <= t.total_xp) AS level " +
+        "FROM users u " +
+        "CROSS JOIN LATERAL (" +
+        "  SELECT u.total_xp + COALESCE(SUM(e.xp_amount), 0) AS total_xp, " +
+        "         CASE WHEN u.weekly_xp_week = ? THEN u.weekly_xp ELSE 0 END " +
+        "           + COALESCE(SUM(e.xp_amount) FILTER (WHERE e.week = ?), 0) AS weekly_xp " +
+        "  FROM xp_events e " +
+        "  WHERE e.user_id = u.id AND (u.xp_reset_at IS NULL OR e.created_at > u.xp_reset_at)" +
+        ") t " +
+        "WHERE u.id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 新增一筆經驗值事件
+     *
+     * @param userId 使用者 UUID
+     * @param unitId 來源單元 UUID
+     * @param xpAmount 增加的經驗值
+     * @param week 事件發生時的週次
+     */
+    public void insert(UUID userId, UUID unitId, int xpAmount, int week) {
+        jdbcTemplate.update(INSERT_SQL, userId, unitId, xpAmount, week);
+    }
+
+    /**
+     * 取出（刪除並回傳）一批最早的事件
+     *
+     * @param limit 本批最多取出的筆數
+     * @return 取出的事件
+     */
+    public List<XpEvent> claimBatch(int limit) {
+        return jdbcTemplate.query(CLAIM_BATCH_SQL, (rs, rowNum) -> new XpEvent(
+            rs.getObject("user_id", UUID.class),
+            rs.getInt("xp_amount"),
+            rs.getInt("week"),
+            rs.getTimestamp("created_at").toLocalDateTime()), limit);
+    }
+
+    /**
+     * 依 UUID 順序鎖定使用者列（SELECT ... FOR UPDATE），並取得各使用者的經驗值重置時間
+     * 用途：套用事件前先鎖定本批所有使用者；重置使用者資料（UserRepository.findByIdForUpdate）
+     * 鎖定同一列，若重置正在進行，會等待其提交後讀到新的重置時間
+     *
+     * 注意：必須與 claimBatch 在同一個交易中呼叫
+     *
+     * @param userIds 使用者 UUID
+     * @return 使用者 UUID → 重置時間（未曾重置為 null；已刪除的使用者不在結果中）
+     */
+    public Map<UUID, LocalDateTime> lockUsers(Collection<UUID> userIds) {
+        Map<UUID, LocalDateTime> resetAt = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return resetAt;
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LOCK_USERS_SQL);
+            statement.setArray(1, connection.createArrayOf("uuid", userIds.toArray()));
+            return statement;
+        }, rs -> {
+            Timestamp xpResetAt = rs.getTimestamp("xp_reset_at");
+            resetAt.put(rs.getObject("id", UUID.class), xpResetAt != null ? xpResetAt.toLocalDateTime() : null);
+        });
+        return resetAt;
+    }
+
+    /**
+     * 是否還有指定週次（含）以前尚未套用的事件
+     * 用途：每週排行榜快照等待上週的事件全部套用後才寫入
+     *
+     * @param week 週次
+     * @return true 表示還有尚未套用的事件
+     */
+    public boolean hasPendingEvents(int week) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_PENDING_SQL, Boolean.class, week));
+    }
+
+    /**
+     * 刪除使用者尚未被取出的事件
+     * 用途：重置使用者資料時清除事件；已被消費者取出的事件不刪除，套用時依重置時間捨棄
+     *
+     * @param userId 使用者 UUID
+     */
+    public void deleteByUserId(UUID userId) {
+        jdbcTemplate.update(DELETE_BY_USER_SQL, userId);
+    }
+
+    /**
+     * 計算使用者套用所有尚未套用的事件後的經驗值與等級
+     *
+     * @param userId 使用者 UUID
+     * @param week 目前週次
+     * @return 預估的經驗值與等級（找不到使用者時為 empty）
+     */
+    public Optional<UserXpLevelView> findProjectedXp(UUID userId, int week) {
+        return jdbcTemplate.query(PROJECTED_XP_SQL, (rs, rowNum) -> (UserXpLevelView) new ProjectedXp(
+            rs.getObject("id", UUID.class),
+            rs.getInt("total_xp"),
+            rs.getInt("weekly_xp"),
+            week,
+            rs.getLong("xp_version"),
+            rs.getInt("level")), week, week, userId).stream().findFirst();
+    }
+
+    /**
+     * 一筆經驗值事件
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class XpEvent {
+
+        /** 使用者 UUID */
+        private final UUID userId;
+
+        /** 增加的經驗值 */
+        private final int xpAmount;
+
+        /** 事件發生時的週次 */
+        private final int week;
+
+        /** 事件建立時間 */
+        private final LocalDateTime createdAt;
+    }
+
+    /**
+     * 預估的經驗值與等級
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class ProjectedXp implements UserXpLevelView {
+
+        private final UUID id;
+        private final Integer totalXp;
+        private final Integer weeklyXp;
+        private final Integer weeklyXpWeek;
+        private final Long xpVersion;
+        private final Integer level;
+    }
+}
@@ -0,0 +1,41 @@
+package com.wsa.repository.projection;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 排行榜查詢列投影
+ * 由單一 SQL 陳述式同時回傳分頁資料、各列排名（RANK() OVER）、總人數與當前使用者列
+ */
+public interface LeaderboardRowView {
+
+    /** 使用者 UUID */
+    UUID getId();
+
+    /** 使用者顯示名稱 */
+    String getDisplayName();
+
+    /** 使用者頭像 URL */
+    String getAvatarUrl();
+
+    /** 使用者等級 */
+    Integer getLevel();
+
+    /** 總經驗值 */
+    Integer getTotalXp();
+
+    /** 本週經驗值（已依週次換算，過去週次為 0） */
+    Integer getWeeklyXp();
+
+    /** 建立時間（用於產生 keyset 游標） */
+    LocalDateTime getCreatedAt();
+
+    /** 排名（當前使用者未上榜時為 null） */
+    Long getRank();
+
+    /** 排行榜總人數（當前使用者未上榜時為 null） */
+    Long getTotalCount();
+
+    /** 是否為當前使用者列（true 表示此列不屬於分頁資料） */
+    Boolean getCurrentUser();
+}
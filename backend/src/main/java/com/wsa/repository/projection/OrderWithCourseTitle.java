@@ -0,0 +1,20 @@
+package com.wsa.repository.projection;
+
+import com.wsa.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 訂單與課程名稱
+ * 訂單列表以單一 JOIN 查詢同時取得課程名稱，避免每筆訂單再查詢一次課程
+ */
+@Getter
+@AllArgsConstructor
+public class OrderWithCourseTitle {
+
+    /** 訂單 */
+    private final Order order;
+
+    /** 課程名稱 */
+    private final String courseTitle;
+}
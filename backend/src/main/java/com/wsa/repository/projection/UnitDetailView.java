@@ -0,0 +1,55 @@
+package com.wsa.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * 單元詳情投影
+ * 由單一 SQL 陳述式同時回傳單元、所屬課程、使用者的課程擁有權與單元進度
+ */
+public interface UnitDetailView {
+
+    /** 單元 UUID */
+    UUID getId();
+
+    /** 單元對外 ID */
+    String getUnitId();
+
+    /** 課程代碼 */
+    String getCourseCode();
+
+    /** 課程標題 */
+    String getCourseTitle();
+
+    /** 章節標題 */
+    String getSectionTitle();
+
+    /** 單元標題 */
+    String getTitle();
+
+    /** 單元類型 */
+    String getType();
+
+    /** 在課程中的排序 */
+    Integer getOrderIndex();
+
+    /** 在章節中的排序 */
+    Integer getOrderInSection();
+
+    /** 影片 URL */
+    String getVideoUrl();
+
+    /** 完成可獲得的經驗值 */
+    Integer getXpReward();
+
+    /** 是否為免費試看 */
+    Boolean getIsFreePreview();
+
+    /** 使用者是否擁有課程（未登入時為 false） */
+    Boolean getOwned();
+
+    /** 使用者是否已完成單元（未登入或沒有進度記錄時為 false） */
+    Boolean getCompleted();
+
+    /** 最後觀看秒數（未登入或沒有進度記錄時為 null） */
+    Integer getLastPositionSeconds();
+}
@@ -0,0 +1,11 @@
+package com.wsa.repository.projection;
+
+/**
+ * 使用者經驗值與等級投影
+ * 增加經驗值的 UPDATE ... RETURNING 回傳的欄位
+ */
+public interface UserXpLevelView extends UserXpView {
+
+    /** 等級 */
+    Integer getLevel();
+}
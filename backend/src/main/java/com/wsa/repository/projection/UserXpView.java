@@ -0,0 +1,25 @@
+package com.wsa.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * 使用者經驗值投影
+ * 只查詢排行榜排名索引需要的欄位，避免載入完整的 User 實體
+ */
+public interface UserXpView {
+
+    /** 使用者 UUID */
+    UUID getId();
+
+    /** 總經驗值 */
+    Integer getTotalXp();
+
+    /** 本週經驗值 */
+    Integer getWeeklyXp();
+
+    /** 本週經驗值所屬的週次 */
+    Integer getWeeklyXpWeek();
+
+    /** 經驗值版本 */
+    Long getXpVersion();
+}
@@ -0,0 +1,16 @@
+package com.wsa.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * 每週排行榜快照的續寫位置投影
+ * 已寫入快照中排序最後一筆的經驗值與使用者 ID（排序：經驗值降序、使用者 ID 升序）
+ */
+public interface WeeklySnapshotCursorView {
+
+    /** 該週經驗值 */
+    Integer getWeeklyXp();
+
+    /** 使用者 UUID */
+    UUID getUserId();
+}
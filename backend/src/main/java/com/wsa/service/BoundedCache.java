@@ -0,0 +1,191 @@
+package com.wsa.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * 有筆數上限與存活時間的記憶體快取（服務內部共用）
+ *
+ * 重要：
+ *   - 以 ConcurrentHashMap 保存，讀取不加鎖
+ *   - 超過筆數上限時先移除過期項目，仍超過時淘汰最久未讀取的項目（一次多淘汰 1/10，攤銷排序成本）；
+ *     淘汰只由一個執行緒進行，並行寫入時筆數可能短暫超過上限
+ *   - compute / update 以 ConcurrentHashMap.compute 對單一鍵原子地讀取並替換，
+ *     呼叫端可據此實作「查詢期間此鍵沒有變更才寫入」，不同鍵之間互不影響
+ */
+final class BoundedCache<K, V> {
+
+    private final Map<K, CacheEntry<V>> entries = new ConcurrentHashMap<>();
+
+    /** 快取筆數上限 */
+    private final int maxSize;
+
+    /** 快取項目的預設存活時間（毫秒） */
+    private final long ttlMillis;
+
+    /** 淘汰次數（筆數上限或到期） */
+    private final LongAdder evictions = new LongAdder();
+
+    /** 同一時間只由一個執行緒淘汰 */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    BoundedCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 取得快取值
+     *
+     * @param key 鍵
+     * @return 快取值（不存在或已過期時為 null）
+     */
+    V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.expiresAtMillis <= now) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            return null;
+        }
+        if (entry.lastAccessMillis != now) {
+            entry.lastAccessMillis = now;
+        }
+        return entry.value;
+    }
+
+    /**
+     * 寫入快取值（使用預設存活時間）
+     */
+    void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * 寫入快取值並指定到期時間（不會超過預設存活時間）
+     *
+     * @param key 鍵
+     * @param value 值
+     * @param expiresAtMillis 到期時間（epoch 毫秒）
+     */
+    void put(K key, V value, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        entries.put(key, new CacheEntry<>(value, Math.min(expiresAtMillis, now + ttlMillis), now));
+        evictIfFull();
+    }
+
+    /**
+     * 依目前的值原子地計算新值並寫入（新值使用預設存活時間）
+     * 用途：查詢資料庫後，只在此鍵的值仍是查詢前的值時寫入
+     *
+     * @param key 鍵
+     * @param remapping 依目前的值（不存在或已過期時為 null）產生新值；回傳目前的值表示不變，回傳 null 表示移除
+     */
+    void compute(K key, UnaryOperator<V> remapping) {
+        long now = System.currentTimeMillis();
+        entries.compute(key, (k, entry) -> {
+            V current = entry != null && entry.expiresAtMillis > now ? entry.value : null;
+            V updated = remapping.apply(current);
+            if (updated == null) {
+                return null;
+            }
+            return updated == current ? entry : new CacheEntry<>(updated, now + ttlMillis, now);
+        });
+        evictIfFull();
+    }
+
+    /**
+     * 依目前的值原子地更新；已存在的項目保留原本的到期時間，不存在時新值使用預設存活時間
+     *
+     * @param key 鍵
+     * @param updater 依目前的值（不存在或已過期時為 null）產生新值；回傳 null 表示移除
+     */
+    void update(K key, UnaryOperator<V> updater) {
+        long now = System.currentTimeMillis();
+        entries.compute(key, (k, entry) -> {
+            boolean live = entry != null && entry.expiresAtMillis > now;
+            V updated = updater.apply(live ? entry.value : null);
+            if (updated == null) {
+                return null;
+            }
+            return live
+                ? new CacheEntry<>(updated, entry.expiresAtMillis, entry.lastAccessMillis)
+                : new CacheEntry<>(updated, now + ttlMillis, now);
+        });
+        evictIfFull();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 超過筆數上限時淘汰項目
+     */
+    private void evictIfFull() {
+        if (entries.size() <= maxSize || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            entries.entrySet().removeIf(e -> {
+                if (e.getValue().expiresAtMillis <= now) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            });
+
+            int excess = entries.size() - maxSize;
+            if (excess <= 0) {
+                return;
+            }
+            // 先取出最後讀取時間的快照再排序（排序期間的讀取不會影響比較結果）
+            List<Map.Entry<Map.Entry<K, CacheEntry<V>>, Long>> eldest = entries.entrySet().stream()
+                .map(e -> Map.entry(e, e.getValue().lastAccessMillis))
+                .sorted(Map.Entry.comparingByValue())
+                .limit(excess + maxSize / 10)
+                .toList();
+            for (Map.Entry<Map.Entry<K, CacheEntry<V>>, Long> candidate : eldest) {
+                Map.Entry<K, CacheEntry<V>> e = candidate.getKey();
+                if (entries.remove(e.getKey(), e.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 快取項目
+     */
+    private static final class CacheEntry<V> {
+
+        private final V value;
+
+        /** 到期時間（epoch 毫秒） */
+        private final long expiresAtMillis;
+
+        /** 最後讀取時間（epoch 毫秒，用於淘汰最久未讀取的項目） */
+        private volatile long lastAccessMillis;
+
+        private CacheEntry(V value, long expiresAtMillis, long lastAccessMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.wsa.service;
+
+import com.wsa.entity.Course;
+import com.wsa.entity.Unit;
+import com.wsa.repository.CourseRepository;
+import com.wsa.repository.UnitRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 課程目錄服務
+ * 在記憶體中保存課程與單元的不可變快照，讓課程目錄的讀取不需要查詢資料庫
+ *
+ * 生命週期：
+ *   1. 應用程式啟動完成後載入快照（若請求早於預熱，第一次讀取時同步載入）
+ *   2. 定期比對 Flyway 最新的 migration 序號，版本變更時重新載入
+ *   3. 也可以呼叫 reload() 明確重新載入
+ *   4. 新快照建立完成後以 AtomicReference 整批替換，讀取端不會看到建立到一半的資料
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogService {
+
+    private final CourseRepository courseRepository;
+    private final UnitRepository unitRepository;
+
+    /** 目前使用中的快照 */
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+
+    /** 避免多個執行緒同時重新載入 */
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    /**
+     * 應用程式啟動完成後載入快照
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (snapshot.get() == null) {
+            reload();
+        }
+    }
+
+    /**
+     * 取得目前的課程目錄快照
+     *
+     * @return 課程目錄快照
+     */
+    public CatalogSnapshot getSnapshot() {
+        CatalogSnapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+
+        reloadLock.lock();
+        try {
+            current = snapshot.get();
+            return current != null ? current : reload();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * 重新從資料庫載入課程目錄並替換快照
+     *
+     * @return 新的快照
+     */
+    public CatalogSnapshot reload() {
+        reloadLock.lock();
+        try {
+            Long version = courseRepository.findCatalogVersion();
+            List<Course> courses = courseRepository.findAll();
+            List<Unit> units = unitRepository.findAll();
+
+            CatalogSnapshot loaded = new CatalogSnapshot(version != null ? version : 0L, courses, units);
+            snapshot.set(loaded);
+            log.info("[CatalogService] 課程目錄已載入（版本 {}）：{} 門課程、{} 個單元",
+                loaded.getVersion(), courses.size(), units.size());
+            return loaded;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * 定期檢查課程目錄版本，版本變更時重新載入
+     */
+    @Scheduled(fixedDelayString = "${catalog.version-check-interval-ms:60000}",
+               initialDelayString = "${catalog.version-check-interval-ms:60000}")
+    public void reloadIfVersionChanged() {
+        CatalogSnapshot current = snapshot.get();
+        if (current == null) {
+            reload();
+            return;
+        }
+
+        Long version = courseRepository.findCatalogVersion();
+        if (version != null && version != current.getVersion()) {
+            log.info("[CatalogService] 偵測到課程目錄版本變更：{} → {}", current.getVersion(), version);
+            reload();
+        }
+    }
+}
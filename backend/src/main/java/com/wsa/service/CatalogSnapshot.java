@@ -0,0 +1,194 @@
+package com.wsa.service;
+
+import com.wsa.entity.Course;
+import com.wsa.entity.Unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 課程目錄快照（不可變）
+ * 一次載入所有課程與單元，預先建立查詢所需的索引與章節分組
+ *
+ * 重要：
+ *   - 建立後不再修改，可安全地被多個執行緒同時讀取
+ *   - 內含的 Course / Unit 實體僅供讀取，不得呼叫 setter 修改
+ *   - 課程目錄只會透過 Flyway migration 變更，變更時由 CatalogService 重新建立並整批替換
+ */
+public final class CatalogSnapshot {
+
+    /** 快照版本（對應 Flyway 最新的 migration 序號） */
+    private final long version;
+
+    /** 所有課程（依載入順序） */
+    private final List<Course> courses;
+
+    /** 課程 UUID → 課程序號（在 courses 中的索引，供 bitset 使用） */
+    private final Map<UUID, Integer> courseOrdinals;
+
+    /** 課程代碼 → 課程 */
+    private final Map<String, Course> coursesByCode;
+
+    /** 課程 UUID → 課程 */
+    private final Map<UUID, Course> coursesById;
+
+    /** 單元對外 ID → 單元 */
+    private final Map<String, Unit> unitsByUnitId;
+
+    /** 單元 UUID → 單元序號（0 起算、連續；同一課程的單元序號相鄰，供 bitset 使用） */
+    private final Map<UUID, Integer> unitOrdinals;
+
+    /** 課程 UUID → 單元列表（依 orderIndex 排序） */
+    private final Map<UUID, List<Unit>> unitsByCourseId;
+
+    /** 課程 UUID → 章節標題 → 章節內單元（章節依出現順序，單元依 orderInSection 排序） */
+    private final Map<UUID, Map<String, List<Unit>>> sectionsByCourseId;
+
+    /** 課程 UUID → 是否有免費試看單元 */
+    private final Map<UUID, Boolean> freePreviewByCourseId;
+
+    /**
+     * 由課程與單元資料建立快照
+     *
+     * @param version 快照版本
+     * @param courses 所有課程
+     * @param units 所有單元
+     */
+    public CatalogSnapshot(long version, List<Course> courses, List<Unit> units) {
+        this.version = version;
+        this.courses = List.copyOf(courses);
+
+        Map<String, Course> byCode = new HashMap<>();
+        Map<UUID, Course> byId = new HashMap<>();
+        Map<UUID, Integer> ordinals = new HashMap<>();
+        for (Course course : this.courses) {
+            byCode.put(course.getCode(), course);
+            byId.put(course.getId(), course);
+            ordinals.put(course.getId(), ordinals.size());
+        }
+        this.courseOrdinals = Collections.unmodifiableMap(ordinals);
+        this.coursesByCode = Collections.unmodifiableMap(byCode);
+        this.coursesById = Collections.unmodifiableMap(byId);
+
+        this.unitsByUnitId = Collections.unmodifiableMap(units.stream()
+            .collect(Collectors.toMap(Unit::getUnitId, unit -> unit)));
+
+        Map<UUID, List<Unit>> byCourse = new HashMap<>();
+        Map<UUID, Map<String, List<Unit>>> sections = new HashMap<>();
+        Map<UUID, Boolean> freePreview = new HashMap<>();
+        units.stream()
+            .collect(Collectors.groupingBy(Unit::getCourseId))
+            .forEach((courseId, courseUnits) -> {
+                List<Unit> ordered = new ArrayList<>(courseUnits);
+                ordered.sort(Comparator.comparing(Unit::getOrderIndex));
+                byCourse.put(courseId, List.copyOf(ordered));
+                sections.put(courseId, groupBySection(ordered));
+                freePreview.put(courseId, ordered.stream().anyMatch(Unit::getIsFreePreview));
+            });
+        this.unitsByCourseId = Collections.unmodifiableMap(byCourse);
+        this.unitOrdinals = assignUnitOrdinals(this.courses, byCourse);
+        this.sectionsByCourseId = Collections.unmodifiableMap(sections);
+        this.freePreviewByCourseId = Collections.unmodifiableMap(freePreview);
+    }
+
+    /**
+     * 依課程順序、課程內依 orderIndex 為單元編號；不屬於任何已載入課程的單元排在最後
+     */
+    private static Map<UUID, Integer> assignUnitOrdinals(List<Course> courses, Map<UUID, List<Unit>> unitsByCourse) {
+        Map<UUID, Integer> ordinals = new HashMap<>();
+        for (Course course : courses) {
+            unitsByCourse.getOrDefault(course.getId(), List.of())
+                .forEach(unit -> ordinals.put(unit.getId(), ordinals.size()));
+        }
+        unitsByCourse.values().forEach(courseUnits -> courseUnits
+            .forEach(unit -> ordinals.putIfAbsent(unit.getId(), ordinals.size())));
+        return Collections.unmodifiableMap(ordinals);
+    }
+
+    /**
+     * 依章節標題分組（保持章節在課程中出現的順序），章節內依 orderInSection 排序
+     */
+    private static Map<String, List<Unit>> groupBySection(List<Unit> orderedUnits) {
+        Map<String, List<Unit>> grouped = orderedUnits.stream()
+            .collect(Collectors.groupingBy(
+                Unit::getSectionTitle,
+                LinkedHashMap::new,  // 保持插入順序
+                Collectors.toList()
+            ));
+
+        Map<String, List<Unit>> sorted = new LinkedHashMap<>();
+        grouped.forEach((sectionTitle, sectionUnits) -> sorted.put(sectionTitle, sectionUnits.stream()
+            .sorted(Comparator.comparing(Unit::getOrderInSection))
+            .collect(Collectors.toUnmodifiableList())));
+        return Collections.unmodifiableMap(sorted);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Course> getCourses() {
+        return courses;
+    }
+
+    public Optional<Course> findCourseByCode(String code) {
+        return Optional.ofNullable(coursesByCode.get(code));
+    }
+
+    /**
+     * 取得課程序號（0 起算、連續，與 getCourses() 的索引相同）
+     *
+     * @param courseId 課程 UUID
+     * @return 課程序號（課程不存在時為 -1）
+     */
+    public int getCourseOrdinal(UUID courseId) {
+        return courseOrdinals.getOrDefault(courseId, -1);
+    }
+
+    public Optional<Course> findCourseById(UUID courseId) {
+        return Optional.ofNullable(coursesById.get(courseId));
+    }
+
+    /**
+     * 取得單元序號（0 起算、連續）
+     *
+     * @param unitId 單元 UUID
+     * @return 單元序號（單元不存在時為 -1）
+     */
+    public int getUnitOrdinal(UUID unitId) {
+        return unitOrdinals.getOrDefault(unitId, -1);
+    }
+
+    /**
+     * 取得單元總數（單元序號的上限）
+     *
+     * @return 單元總數
+     */
+    public int getUnitCount() {
+        return unitOrdinals.size();
+    }
+
+    public Optional<Unit> findUnitByUnitId(String unitId) {
+        return Optional.ofNullable(unitsByUnitId.get(unitId));
+    }
+
+    public List<Unit> getUnits(UUID courseId) {
+        return unitsByCourseId.getOrDefault(courseId, List.of());
+    }
+
+    public Map<String, List<Unit>> getSections(UUID courseId) {
+        return sectionsByCourseId.getOrDefault(courseId, Map.of());
+    }
+
+    public boolean hasFreePreview(UUID courseId) {
+        return freePreviewByCourseId.getOrDefault(courseId, false);
+    }
+}
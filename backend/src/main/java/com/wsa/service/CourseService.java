@@ -6,9 +6,6 @@ import com.wsa.dto.SectionDto;
 import com.wsa.dto.UnitSummaryDto;
 import com.wsa.entity.Course;
 import com.wsa.entity.Unit;
-import com.wsa.repository.CourseRepository;
-import com.wsa.repository.UnitRepository;
-import com.wsa.repository.UserUnitProgressRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -23,9 +20,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CourseService {
 
-    private final CourseRepository courseRepository;
-    private final UnitRepository unitRepository;
-    private final UserUnitProgressRepository progressRepository;
+    private final CatalogService catalogService;
+    private final UnitCompletionCache unitCompletionCache;
     private final UserCourseService userCourseService;
 
     /**
@@ -35,8 +31,13 @@ public class CourseService {
      * @return 課程列表
      */
     public List<CourseDto> getAllCourses(UUID userId) {
-        return courseRepository.findAll().stream()
-            .map(course -> convertToDto(course, userId))
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+
+        // 一次查出使用者擁有的所有課程（未登入時不查詢）
+        Set<UUID> ownedCourseIds = userCourseService.getOwnedCourseIds(userId);
+
+        return catalog.getCourses().stream()
+            .map(course -> convertToDto(course, ownedCourseIds.contains(course.getId()), catalog))
             .collect(Collectors.toList());
     }
 
@@ -48,31 +49,27 @@ public class CourseService {
      * @return 課程詳情（包含 sections）
      */
     public CourseDetailResponseDto getCourseDetailByCode(String courseCode, UUID userId) {
-        Course course = courseRepository.findByCode(courseCode)
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        Course course = catalog.findCourseByCode(courseCode)
             .orElseThrow(() -> new RuntimeException("找不到課程：" + courseCode));
 
         // 計算使用者是否擁有此課程
         boolean isOwned = userId != null && userCourseService.isUserOwnedCourse(userId, course.getId());
 
-        // 取得該課程的所有單元，按 section_title 和 order_in_section 排序
-        List<Unit> units = unitRepository.findByCourseIdOrderByOrderIndexAsc(course.getId());
+        // 使用者已完成的單元（位元索引為快照中的單元序號；未登入時為空）
+        BitSet completedUnits = userId != null
+            ? unitCompletionCache.getCompletedUnits(userId, catalog)
+            : new BitSet();
 
-        // 按 section_title 分組單元
-        Map<String, List<Unit>> unitsBySection = units.stream()
-            .collect(Collectors.groupingBy(
-                Unit::getSectionTitle,
-                LinkedHashMap::new,  // 保持插入順序
-                Collectors.toList()
-            ));
+        // 章節分組已在快照中依 section_title 分組、並按 order_in_section 排序
+        Map<String, List<Unit>> unitsBySection = catalog.getSections(course.getId());
 
         // 轉換為 SectionDto 列表
         List<SectionDto> sections = unitsBySection.entrySet().stream()
             .map(entry -> {
                 String sectionTitle = entry.getKey();
                 List<UnitSummaryDto> unitDtos = entry.getValue().stream()
-                    // 按 orderInSection 排序
-                    .sorted(Comparator.comparing(Unit::getOrderInSection))
-                    .map(unit -> convertToUnitSummaryDto(unit, userId, isOwned))
+                    .map(unit -> convertToUnitSummaryDto(unit, userId, isOwned, completedUnits.get(catalog.getUnitOrdinal(unit.getId()))))
                     .collect(Collectors.toList());
 
                 return SectionDto.builder()
@@ -83,7 +80,7 @@ public class CourseService {
             .collect(Collectors.toList());
 
         // 建立課程基本資訊 DTO
-        CourseDto courseDto = convertToDto(course, userId);
+        CourseDto courseDto = convertToDto(course, isOwned, catalog);
 
         // 建立完整的課程詳情回應
         return CourseDetailResponseDto.builder()
@@ -96,17 +93,13 @@ public class CourseService {
      * 將 Course Entity 轉換為 CourseDto
      *
      * @param course 課程實體
-     * @param userId 使用者 UUID（可為 null）
+     * @param isOwned 使用者是否擁有此課程（由呼叫端批次計算）
+     * @param catalog 課程目錄快照
      * @return 課程 DTO
      */
-    private CourseDto convertToDto(Course course, UUID userId) {
-        // 計算使用者是否擁有此課程
-        boolean isOwned = userId != null && userCourseService.isUserOwnedCourse(userId, course.getId());
-
-        // 檢查課程是否有免費試看單元
-        boolean hasFreePreview = unitRepository.findByCourseIdOrderByOrderIndexAsc(course.getId())
-            .stream()
-            .anyMatch(Unit::getIsFreePreview);
+    private CourseDto convertToDto(Course course, boolean isOwned, CatalogSnapshot catalog) {
+        // 檢查課程是否有免費試看單元（快照中預先計算）
+        boolean hasFreePreview = catalog.hasFreePreview(course.getId());
 
         return CourseDto.builder()
             .id(course.getId())
@@ -131,12 +124,10 @@ public class CourseService {
      * @param unit 單元實體
      * @param userId 使用者 UUID（可為 null）
      * @param isOwned 使用者是否擁有該課程
+     * @param isCompleted 使用者是否已完成該單元（由呼叫端批次查詢）
      * @return 單元摘要 DTO
      */
-    private UnitSummaryDto convertToUnitSummaryDto(Unit unit, UUID userId, boolean isOwned) {
-        // 檢查是否已完成
-        boolean isCompleted = userId != null && progressRepository.existsByUserIdAndUnitId(userId, unit.getId());
-
+    private UnitSummaryDto convertToUnitSummaryDto(Unit unit, UUID userId, boolean isOwned, boolean isCompleted) {
         // 計算 canAccess（存取權限）
         // 規則：
         // 1. 若未登入（userId == null）→ false
@@ -0,0 +1,36 @@
+package com.wsa.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * 過期訂單取消排程
+ * 定期將超過付款期限的待付款訂單分批改為 CANCELLED
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExpiredOrderCancellationJob {
+
+    private final OrderService orderService;
+
+    /** 每批最多取消的筆數 */
+    @Value("${order.expiry.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * 定期取消過期訂單
+     */
+    @Scheduled(fixedDelayString = "${order.expiry.check-interval-ms:60000}")
+    public void cancelExpiredOrders() {
+        try {
+            orderService.checkAndCancelExpiredOrders(chunkSize);
+        } catch (DataAccessException e) {
+            log.warn("[ExpiredOrderCancellationJob] 取消過期訂單失敗，將於下次排程重試", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.wsa.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 同一個冪等鍵的第一次請求仍在執行中，等待其結果逾時
+ * 回應 409，用戶端稍後以同一個冪等鍵重試
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyInProgressException extends RuntimeException {
+
+    public IdempotencyInProgressException() {
+        super("同一個冪等鍵的請求仍在處理中，請稍後再試");
+    }
+}
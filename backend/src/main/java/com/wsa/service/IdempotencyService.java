@@ -0,0 +1,250 @@
+package com.wsa.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wsa.repository.IdempotencyKeyRepository;
+import com.wsa.repository.IdempotencyKeyRepository.StoredKey;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 冪等鍵（Idempotency-Key）服務
+ * 用戶端逾時重試時帶同一個冪等鍵，第二次以後直接回傳第一次的結果，不會重複執行
+ *
+ * 重要：
+ *   - 冪等鍵以「操作類型 + 使用者 + 冪等鍵」為範圍，不同使用者的相同冪等鍵互不影響
+ *   - 冪等鍵與結果保存在 idempotency_keys（所有執行個體共用），重試送到任何執行個體都會取得相同結果；
+ *     超過存活時間後由排程清除
+ *   - 同一個冪等鍵同時有多個請求時，只有第一個會執行：同一執行個體內的請求等待其結果，
+ *     其他執行個體的請求輪詢資料庫；等待超過 idempotency.wait-timeout-ms 時拋出 IdempotencyInProgressException（409）
+ *   - 執行中的冪等鍵有租約（idempotency.in-progress-ttl-ms），執行個體在執行中停止時，租約到期後可由重試接手
+ *   - 執行失敗（拋出例外）不會保存結果，用戶端可用同一個冪等鍵重試
+ *   - 同一個冪等鍵用於不同的請求內容（fingerprint 不同）時拒絕
+ *   - 記憶體中只保存執行中的冪等鍵，筆數上限（idempotency.max-in-flight）已滿時拋出 IdempotencyStoreFullException（429）
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    /** 冪等鍵的 HTTP header 名稱 */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /** 冪等鍵最大長度 */
+    private static final int MAX_KEY_LENGTH = 128;
+
+    /** 輪詢其他執行個體執行結果的間隔（毫秒） */
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    /** 每批清除的過期冪等鍵筆數 */
+    private static final int CLEANUP_BATCH_SIZE = 1000;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final ObjectMapper objectMapper;
+
+    /** 範圍鍵 → 此執行個體中執行中的請求 */
+    private final Map<String, InFlightEntry> inFlight = new ConcurrentHashMap<>();
+
+    /** 結果保存時間（毫秒） */
+    @Value("${idempotency.ttl-ms:86400000}")
+    private long ttlMillis;
+
+    /** 執行中的租約時間（毫秒），應大於操作的最長執行時間 */
+    @Value("${idempotency.in-progress-ttl-ms:60000}")
+    private long inProgressTtlMillis;
+
+    /** 重複請求等待第一次執行結果的最長時間（毫秒） */
+    @Value("${idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMillis;
+
+    /** 此執行個體中最多同時執行中的冪等鍵數 */
+    @Value("${idempotency.max-in-flight:10000}")
+    private int maxInFlight;
+
+    /**
+     * 以冪等鍵執行操作
+     *
+     * @param operation 操作類型（例如：createOrder）
+     * @param userId 使用者 ID
+     * @param idempotencyKey 用戶端提供的冪等鍵
+     * @param fingerprint 請求內容摘要（同一個冪等鍵必須對應相同的請求內容）
+     * @param resultType 操作結果的型別（保存的結果以 JSON 還原）
+     * @param action 實際執行的操作
+     * @return 操作結果（重複的冪等鍵回傳第一次的結果）
+     * @throws IllegalArgumentException 冪等鍵格式錯誤，或同一個冪等鍵用於不同的請求內容時
+     * @throws IdempotencyInProgressException 等待第一次執行的結果逾時
+     */
+    public <T> T execute(String operation, UUID userId, String idempotencyKey, String fingerprint,
+                         Class<T> resultType, Supplier<T> action) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("無效的 " + IDEMPOTENCY_KEY_HEADER);
+        }
+
+        String scopedKey = operation + ":" + userId + ":" + idempotencyKey;
+        InFlightEntry created = new InFlightEntry(new CompletableFuture<>(), fingerprint);
+
+        InFlightEntry existing = inFlight.putIfAbsent(scopedKey, created);
+        if (existing != null) {
+            if (!existing.fingerprint.equals(fingerprint)) {
+                throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " 已用於不同的請求");
+            }
+            return resultType.cast(await(existing.result));
+        }
+        if (inFlight.size() > maxInFlight) {
+            IdempotencyStoreFullException full = new IdempotencyStoreFullException();
+            created.result.completeExceptionally(full);
+            inFlight.remove(scopedKey, created);
+            throw full;
+        }
+
+        try {
+            T result = claimAndExecute(scopedKey, fingerprint, resultType, action);
+            created.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            // 同時等待中的請求會收到相同的例外
+            created.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, created);
+        }
+    }
+
+    /**
+     * 在資料庫取得冪等鍵後執行操作；已被其他請求取得時等待並回傳其結果
+     */
+    private <T> T claimAndExecute(String scopedKey, String fingerprint, Class<T> resultType, Supplier<T> action) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+        while (true) {
+            if (idempotencyKeyRepository.tryClaim(scopedKey, fingerprint, inProgressTtlMillis)) {
+                return executeClaimed(scopedKey, action);
+            }
+
+            Optional<StoredKey> stored = idempotencyKeyRepository.find(scopedKey);
+            if (stored.isEmpty()) {
+                // 第一次請求執行失敗而釋放，或已過期：重新嘗試取得
+                continue;
+            }
+            if (!stored.get().getFingerprint().equals(fingerprint)) {
+                throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " 已用於不同的請求");
+            }
+            if (stored.get().getResponse() != null) {
+                return fromJson(stored.get().getResponse(), resultType);
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IdempotencyInProgressException();
+            }
+            sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * 執行已取得冪等鍵的操作並保存結果；失敗時釋放冪等鍵
+     */
+    private <T> T executeClaimed(String scopedKey, Supplier<T> action) {
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            idempotencyKeyRepository.release(scopedKey);
+            throw e;
+        }
+
+        try {
+            idempotencyKeyRepository.complete(scopedKey, objectMapper.writeValueAsString(result), ttlMillis);
+        } catch (JsonProcessingException | RuntimeException e) {
+            // 操作已完成，不讓保存失敗影響本次回應；租約到期前的重試會等待逾時，之後的重試會重新執行
+            log.warn("[IdempotencyService] 保存冪等鍵 {} 的結果失敗", scopedKey, e);
+        }
+        return result;
+    }
+
+    /**
+     * 目前執行中的冪等鍵數量
+     *
+     * @return 筆數
+     */
+    int inFlightSize() {
+        return inFlight.size();
+    }
+
+    /**
+     * 定期分批清除已過期的冪等鍵
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:60000}")
+    public void removeExpired() {
+        int removed = 0;
+        int deleted;
+        do {
+            deleted = idempotencyKeyRepository.deleteExpired(CLEANUP_BATCH_SIZE);
+            removed += deleted;
+        } while (deleted == CLEANUP_BATCH_SIZE);
+        if (removed > 0) {
+            log.debug("[IdempotencyService] 已清除 {} 筆過期的冪等鍵", removed);
+        }
+    }
+
+    /**
+     * 等待同一執行個體中第一次執行的結果；第一次執行失敗時拋出相同的例外
+     */
+    private Object await(CompletableFuture<Object> result) {
+        try {
+            return result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyInProgressException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyInProgressException();
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> resultType) {
+        try {
+            return objectMapper.readValue(json, resultType);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("無法還原冪等鍵保存的結果", e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyInProgressException();
+        }
+    }
+
+    /**
+     * 此執行個體中執行中的請求
+     */
+    @AllArgsConstructor
+    private static final class InFlightEntry {
+
+        /** 第一次執行的結果（執行中時尚未完成） */
+        private final CompletableFuture<Object> result;
+
+        /** 請求內容摘要 */
+        private final String fingerprint;
+    }
+}
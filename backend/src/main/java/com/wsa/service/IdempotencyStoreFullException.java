@@ -0,0 +1,16 @@
+package com.wsa.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 此執行個體中執行中的冪等鍵數量已達上限
+ * 回應 429，用戶端稍後重試
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class IdempotencyStoreFullException extends RuntimeException {
+
+    public IdempotencyStoreFullException() {
+        super("處理中的冪等鍵數量已達上限，請稍後再試");
+    }
+}
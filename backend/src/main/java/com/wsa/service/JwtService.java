@@ -1,15 +1,19 @@
 package com.wsa.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -28,14 +32,22 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    /** 簽章密鑰（啟動時由 secret 產生一次） */
+    private Key signingKey;
+
+    /** JWT 解析器（不可變、可被多個執行緒共用） */
+    private JwtParser jwtParser;
+
     /**
-     * 取得簽章密鑰
-     * 將設定檔中的字串密鑰轉換為 HMAC-SHA256 簽章用的 Key 物件
-     *
-     * @return 簽章密鑰
+     * 啟動時建立簽章密鑰與 JWT 解析器
+     * 將設定檔中的字串密鑰轉換為 HMAC-SHA256 簽章用的 Key 物件，避免每次請求重新產生
      */
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     /**
@@ -54,10 +66,54 @@ public class JwtService {
                 .setSubject(userId.toString())  // 在 subject 中儲存使用者 ID
                 .setIssuedAt(now)               // 設定發行時間
                 .setExpiration(expiryDate)       // 設定過期時間
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)  // 使用 HS256 簽章
+                .signWith(signingKey, SignatureAlgorithm.HS256)  // 使用 HS256 簽章
                 .compact();
     }
 
+    /**
+     * 驗證並解析 JWT token（簽章、格式與過期時間只檢查一次）
+     *
+     * @param token JWT token 字串
+     * @return token 的 claims（token 無效時為 empty）
+     */
+    public Optional<Claims> parseClaims(String token) {
+        try {
+            return Optional.of(jwtParser.parseClaimsJws(token).getBody());
+        } catch (JwtException | IllegalArgumentException e) {
+            // 簽章錯誤、過期、格式錯誤等都視為無效 token
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 驗證 JWT token 並取得使用者 ID（單次解析）
+     * 供 JwtFilter 使用，取代 validateToken + getUserIdFromToken 重複解析兩次
+     *
+     * @param token JWT token 字串
+     * @return 使用者唯一識別碼（token 無效或 subject 不是 UUID 時為 empty）
+     */
+    public Optional<UUID> resolveUserId(String token) {
+        return parseClaims(token).flatMap(this::getUserId);
+    }
+
+    /**
+     * 從已驗證的 claims 取得使用者 ID
+     *
+     * @param claims 已驗證的 claims
+     * @return 使用者唯一識別碼（subject 不是 UUID 時為 empty）
+     */
+    public Optional<UUID> getUserId(Claims claims) {
+        String subject = claims.getSubject();
+        if (subject == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(UUID.fromString(subject));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
     /**
      * 從 JWT token 中取得使用者 ID
      * 解析 token 並從 subject 欄位中取得使用者 ID
@@ -67,11 +123,7 @@ public class JwtService {
      */
     public UUID getUserIdFromToken(String token) {
         // 解析 token 並取得 claims（聲明）
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
 
         // 從 subject 欄位取得使用者 ID 並轉換為 UUID
         return UUID.fromString(claims.getSubject());
@@ -85,16 +137,6 @@ public class JwtService {
      * @return true 表示 token 有效，false 表示無效
      */
     public boolean validateToken(String token) {
-        try {
-            // 嘗試解析 token，若成功則表示 token 有效
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-            // 任何例外（簽章錯誤、過期、格式錯誤等）都視為無效 token
-            return false;
-        }
+        return parseClaims(token).isPresent();
     }
 }
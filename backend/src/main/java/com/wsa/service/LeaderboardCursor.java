@@ -0,0 +1,76 @@
+package com.wsa.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * 排行榜 keyset 分頁游標
+ * 記錄上一頁最後一筆的排序鍵（經驗值 DESC、建立時間 ASC、id），
+ * 下一頁直接從該位置往後查詢，不需要 OFFSET 掃描並丟棄前面的資料
+ *
+ * 對外以 Base64 URL-safe 字串表示，前端應視為不透明（opaque）的值
+ */
+@Getter
+@AllArgsConstructor
+public class LeaderboardCursor {
+
+    /** 總經驗值排行榜 */
+    public static final String KIND_TOTAL = "t";
+
+    /** 本週經驗值排行榜 */
+    public static final String KIND_WEEKLY = "w";
+
+    /** 排行榜類型（避免將總排行榜的游標用於本週排行榜） */
+    private final String kind;
+
+    /** 上一頁最後一筆的經驗值 */
+    private final int xp;
+
+    /** 上一頁最後一筆的建立時間 */
+    private final LocalDateTime createdAt;
+
+    /** 上一頁最後一筆的使用者 ID */
+    private final UUID id;
+
+    /**
+     * 編碼為不透明字串
+     *
+     * @return 游標字串
+     */
+    public String encode() {
+        String raw = kind + "|" + xp + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游標字串
+     *
+     * @param cursor 游標字串
+     * @param expectedKind 預期的排行榜類型
+     * @return 游標
+     * @throws IllegalArgumentException 游標格式錯誤或類型不符時
+     */
+    public static LeaderboardCursor decode(String cursor, String expectedKind) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 4 || !parts[0].equals(expectedKind)) {
+                throw new IllegalArgumentException("無效的排行榜游標");
+            }
+            return new LeaderboardCursor(
+                parts[0],
+                Integer.parseInt(parts[1]),
+                LocalDateTime.parse(parts[2]),
+                UUID.fromString(parts[3])
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("無效的排行榜游標", e);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.wsa.service;
+
+import com.wsa.event.UserXpChangedEvent;
+import com.wsa.repository.UserRepository;
+import com.wsa.repository.projection.UserXpView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 排行榜排名索引
+ * 在記憶體中維護總經驗值與本週經驗值的排名索引，取代逐筆的 COUNT(*) 查詢
+ *
+ * 生命週期：
+ *   1. 應用程式啟動完成後，從 users 資料表載入所有使用者的經驗值（預熱）
+ *   2. 每次經驗值變更的交易提交後，透過 UserXpChangedEvent 更新索引
+ *      （事件依 xpVersion 判斷先後，版本比索引中舊的事件不套用）
+ *   3. 預熱完成前 isWarm() 為 false，呼叫端應改用 SQL 計算排名
+ *   4. 換週時本週經驗值索引直接清空（與 users.weekly_xp_week 的語意一致）
+ *   5. 定期（leaderboard.rank-index.resync-interval-ms）從 users 資料表完整重建：
+ *      其他執行個體的經驗值變更不會送到此執行個體，最多延遲一個重建間隔後反映
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LeaderboardRankIndex {
+
+    private final UserRepository userRepository;
+
+    private final XpRankIndex totalXpIndex = new XpRankIndex();
+    private final XpRankIndex weeklyXpIndex = new XpRankIndex();
+
+    /** 每位使用者已套用的經驗值版本（只在 stateLock 內存取） */
+    private final Map<UUID, Long> appliedVersions = new HashMap<>();
+
+    /** 預熱期間收到的事件，預熱完成後依序補套用 */
+    private final Queue<UserXpChangedEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+
+    /** 保護 loading 狀態切換與事件套用的順序 */
+    private final ReentrantLock stateLock = new ReentrantLock();
+
+    /** 同一時間只進行一次重建（預熱與定期重建不會交錯） */
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    /** 索引是否已完成預熱 */
+    private volatile boolean warm = false;
+
+    /** 是否正在預熱或重建中 */
+    private boolean loading = false;
+
+    /** 本週經驗值索引對應的週次 */
+    private volatile int weeklyIndexWeek = WeekNumber.current();
+
+    /**
+     * 應用程式啟動完成後預熱索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            int count = reload();
+            warm = true;
+            log.info("[LeaderboardRankIndex] 排名索引預熱完成，共 {} 位使用者", count);
+        } catch (RuntimeException e) {
+            log.warn("[LeaderboardRankIndex] 排名索引預熱失敗，排行榜將使用 SQL 計算排名", e);
+        }
+    }
+
+    /**
+     * 定期從 users 資料表完整重建索引
+     * 套用其他執行個體的經驗值變更，並修正任何遺漏的事件；尚未預熱時改為預熱
+     */
+    @Scheduled(fixedDelayString = "${leaderboard.rank-index.resync-interval-ms:300000}",
+               initialDelayString = "${leaderboard.rank-index.resync-interval-ms:300000}")
+    public void resync() {
+        if (!warm) {
+            warmUp();
+            return;
+        }
+        try {
+            int count = reload();
+            log.debug("[LeaderboardRankIndex] 排名索引已重建，共 {} 位使用者", count);
+        } catch (RuntimeException e) {
+            // 保留目前的索引，下次排程再重建
+            log.warn("[LeaderboardRankIndex] 排名索引重建失敗，沿用目前的索引", e);
+        }
+    }
+
+    /**
+     * 從 users 資料表載入所有使用者的經驗值並重建索引
+     * 載入期間收到的事件先暫存，完成後依版本補套用（比載入結果舊的事件會被捨棄）
+     *
+     * @return 載入的使用者人數
+     */
+    private int reload() {
+        reloadLock.lock();
+        setLoading(true);
+        try {
+            int currentWeek = WeekNumber.current();
+            List<UserXpView> users = userRepository.findAllXp();
+
+            Map<UUID, Integer> totalXp = new HashMap<>(users.size() * 2);
+            Map<UUID, Integer> weeklyXp = new HashMap<>(users.size() * 2);
+            Map<UUID, Long> versions = new HashMap<>(users.size() * 2);
+            for (UserXpView user : users) {
+                totalXp.put(user.getId(), user.getTotalXp());
+                // 過去週次的本週經驗值視為 0
+                boolean isCurrentWeek = user.getWeeklyXpWeek() != null && user.getWeeklyXpWeek() == currentWeek;
+                weeklyXp.put(user.getId(), isCurrentWeek ? user.getWeeklyXp() : 0);
+                versions.put(user.getId(), user.getXpVersion() != null ? user.getXpVersion() : 0L);
+            }
+
+            stateLock.lock();
+            try {
+                totalXpIndex.rebuild(totalXp);
+                weeklyXpIndex.rebuild(weeklyXp);
+                weeklyIndexWeek = currentWeek;
+                appliedVersions.clear();
+                appliedVersions.putAll(versions);
+            } finally {
+                stateLock.unlock();
+            }
+            return users.size();
+        } finally {
+            // 補套用載入期間的變更
+            setLoading(false);
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * 使用者經驗值變更（交易提交後）時更新索引
+     *
+     * @param event 經驗值變更事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserXpChanged(UserXpChangedEvent event) {
+        stateLock.lock();
+        try {
+            if (loading) {
+                pendingEvents.add(event);
+            } else {
+                apply(event);
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * 索引是否已完成預熱
+     *
+     * @return true 表示可使用索引計算排名
+     */
+    public boolean isWarm() {
+        return warm;
+    }
+
+    /**
+     * 計算總經驗值排名（比此經驗值高的人數 + 1）
+     *
+     * @param totalXp 總經驗值
+     * @return 排名
+     */
+    public long getTotalXpRank(int totalXp) {
+        return totalXpIndex.countGreaterThan(totalXp) + 1;
+    }
+
+    /**
+     * 計算本週經驗值排名（比此經驗值高的人數 + 1）
+     *
+     * @param weeklyXp 本週經驗值
+     * @return 排名
+     */
+    public long getWeeklyXpRank(int weeklyXp) {
+        rollWeekIfNeeded();
+        return weeklyXpIndex.countGreaterThan(weeklyXp) + 1;
+    }
+
+    /**
+     * 取得使用者總數
+     *
+     * @return 使用者總數
+     */
+    public long countUsers() {
+        return totalXpIndex.size();
+    }
+
+    /**
+     * 取得本週經驗值大於 0 的使用者人數
+     *
+     * @return 使用者人數
+     */
+    public long countWeeklyActiveUsers() {
+        rollWeekIfNeeded();
+        return weeklyXpIndex.countGreaterThan(0);
+    }
+
+    /**
+     * 切換預熱狀態；結束預熱時一併補套用期間累積的事件
+     */
+    private void setLoading(boolean value) {
+        stateLock.lock();
+        try {
+            loading = value;
+            if (!value) {
+                UserXpChangedEvent pending;
+                while ((pending = pendingEvents.poll()) != null) {
+                    apply(pending);
+                }
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * 換週時清空本週經驗值索引
+     */
+    private void rollWeekIfNeeded() {
+        int currentWeek = WeekNumber.current();
+        if (weeklyIndexWeek == currentWeek) {
+            return;
+        }
+        stateLock.lock();
+        try {
+            if (weeklyIndexWeek != currentWeek) {
+                weeklyXpIndex.rebuild(Map.of());
+                weeklyIndexWeek = currentWeek;
+                log.info("[LeaderboardRankIndex] 已換週，清空本週經驗值索引（週次 {}）", currentWeek);
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private void apply(UserXpChangedEvent event) {
+        Long applied = appliedVersions.get(event.getUserId());
+        if (applied != null && event.getXpVersion() < applied) {
+            // 較晚送達的舊事件（同一使用者的另一個交易已先套用較新的值）
+            return;
+        }
+        appliedVersions.put(event.getUserId(), event.getXpVersion());
+
+        rollWeekIfNeeded();
+        totalXpIndex.update(event.getUserId(), event.getTotalXp());
+        int weeklyXp = event.getWeeklyXpWeek() == weeklyIndexWeek ? event.getWeeklyXp() : 0;
+        weeklyXpIndex.update(event.getUserId(), weeklyXp);
+    }
+}
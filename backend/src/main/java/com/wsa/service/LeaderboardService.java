@@ -4,13 +4,19 @@ import com.wsa.dto.LeaderboardEntryDto;
 import com.wsa.dto.LeaderboardResponseDto;
 import com.wsa.entity.User;
 import com.wsa.repository.UserRepository;
+import com.wsa.repository.projection.LeaderboardRowView;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -23,6 +29,7 @@ import java.util.stream.IntStream;
 public class LeaderboardService {
 
     private final UserRepository userRepository;
+    private final LeaderboardRankIndex rankIndex;
 
     /**
      * 取得總經驗值排行榜（舊版，保留向後相容）
@@ -50,29 +57,46 @@ public class LeaderboardService {
      * @return 排行榜回應資料
      */
     public LeaderboardResponseDto getTotalXpLeaderboardWithPagination(int limit, int offset, UUID currentUserId) {
-        // 使用 offset/limit 查詢（修正分頁錯誤）
-        List<User> users = userRepository.findAllOrderByTotalXpWithOffset(limit, offset);
-
-        // 取得總人數
-        long total = userRepository.count();
-
-        // 移除「強制插入當前使用者到列表」的邏輯
-        // 當前使用者的排名會在 currentUserEntry 中單獨顯示
-        // 這樣可以避免分頁時的資料重複問題
-
-        // 轉換為 DTO 並計算正確排名（使用 countByTotalXpGreaterThan）
-        List<LeaderboardEntryDto> leaderboard = users.stream()
-            .map(user -> {
-                // 計算排名：比此使用者經驗值高的人數 + 1
-                long rank = userRepository.countByTotalXpGreaterThan(user.getTotalXp()) + 1;
-                return convertToLeaderboardEntry(user, String.valueOf(rank));
-            })
-            .collect(Collectors.toList());
+        if (rankIndex.isWarm()) {
+            // 排名與總人數由索引計算，資料庫只查詢分頁資料（依索引順序讀取 offset + limit 筆）
+            List<User> page = userRepository.findAllOrderByTotalXpWithOffset(limit, offset);
+            LeaderboardEntryDto currentUserEntry = currentUserId != null ? getCurrentUserTotalXpRank(currentUserId) : null;
+            return toIndexedPageResponse(page, offset, limit, rankIndex.countUsers(), currentUserEntry,
+                LeaderboardCursor.KIND_TOTAL, User::getTotalXp, rankIndex::getTotalXpRank);
+        }
 
-        // 計算是否有更多資料
-        boolean hasMore = (offset + limit) < total;
+        // 索引尚未預熱：單一查詢取得分頁資料、排名（RANK() OVER）、總人數與當前使用者列，一次資料庫往返
+        List<LeaderboardRowView> rows = userRepository.findTotalXpLeaderboardPage(
+            limit, offset, currentUserId, WeekNumber.current());
+
+        return toPageResponse(rows, offset, limit, LeaderboardCursor.KIND_TOTAL, LeaderboardRowView::getTotalXp,
+            userRepository::count);
+    }
+
+    /**
+     * 取得總經驗值排行榜（keyset 分頁）
+     * 從游標位置往後查詢，查詢成本不隨頁數增加（無限捲動用）
+     *
+     * @param limit 每頁回傳人數（預設 20）
+     * @param cursor 上一頁回傳的 nextCursor
+     * @param currentUserId 當前使用者 ID（可為 null）
+     * @return 排行榜回應資料
+     * @throws IllegalArgumentException 游標格式錯誤時
+     */
+    public LeaderboardResponseDto getTotalXpLeaderboardWithCursor(int limit, String cursor, UUID currentUserId) {
+        LeaderboardCursor after = LeaderboardCursor.decode(cursor, LeaderboardCursor.KIND_TOTAL);
+
+        // 多查一筆以判斷是否還有下一頁
+        List<User> users = userRepository.findAllOrderByTotalXpAfter(
+            after.getXp(), after.getCreatedAt(), after.getId(), limit + 1);
+        boolean hasMore = users.size() > limit;
+        List<User> page = hasMore ? users.subList(0, limit) : users;
+
+        long total = rankIndex.isWarm() ? rankIndex.countUsers() : userRepository.count();
+
+        List<LeaderboardEntryDto> leaderboard = toRankedEntries(page, User::getTotalXp,
+            xp -> rankIndex.getTotalXpRank(xp), xp -> userRepository.countByTotalXpGreaterThan(xp));
 
-        // 如果有當前使用者 ID，計算其排名
         LeaderboardEntryDto currentUserEntry = null;
         if (currentUserId != null) {
             currentUserEntry = getCurrentUserTotalXpRank(currentUserId);
@@ -83,6 +107,7 @@ public class LeaderboardService {
             .currentUserEntry(currentUserEntry)
             .total(total)
             .hasMore(hasMore)
+            .nextCursor(buildNextCursor(page, hasMore, LeaderboardCursor.KIND_TOTAL, User::getTotalXp))
             .build();
     }
 
@@ -93,9 +118,8 @@ public class LeaderboardService {
      * @return 排行榜列表
      */
     public List<LeaderboardEntryDto> getWeeklyXpLeaderboard(int limit) {
-        // 依照本週經驗值降序排列
-        PageRequest pageRequest = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "weeklyXp"));
-        List<User> users = userRepository.findAll(pageRequest).getContent();
+        // 依照本週經驗值降序排列（只包含本週週次的經驗值）
+        List<User> users = userRepository.findByWeeklyXpGreaterThanZeroWithOffset(limit, 0, WeekNumber.current());
 
         // 轉換為 DTO 並加上排名
         return IntStream.range(0, users.size())
@@ -113,32 +137,58 @@ public class LeaderboardService {
      * @return 排行榜回應資料
      */
     public LeaderboardResponseDto getWeeklyXpLeaderboardWithPagination(int limit, int offset, UUID currentUserId) {
-        // 使用 offset/limit 查詢（修正分頁錯誤）
-        List<User> users = userRepository.findByWeeklyXpGreaterThanZeroWithOffset(limit, offset);
-
-        // 取得本週經驗值大於 0 的總人數
-        long total = userRepository.countByWeeklyXpGreaterThan(0);
-
-        // 移除「強制插入當前使用者到列表」的邏輯
-        // 當前使用者的排名會在 currentUserEntry 中單獨顯示
-        // 這樣可以避免分頁時的資料重複問題
-
-        // 轉換為 DTO 並計算正確排名（使用 countByWeeklyXpGreaterThan）
-        List<LeaderboardEntryDto> leaderboard = users.stream()
-            .map(user -> {
-                // 計算排名：比此使用者經驗值高的人數 + 1
-                long rank = userRepository.countByWeeklyXpGreaterThan(user.getWeeklyXp()) + 1;
-                return convertToLeaderboardEntry(user, String.valueOf(rank));
-            })
-            .collect(Collectors.toList());
+        // weekly_xp_week 不等於本週的經驗值視為 0（換週不需要重置資料）
+        int currentWeek = WeekNumber.current();
 
-        // 計算是否有更多資料
-        boolean hasMore = (offset + limit) < total;
+        if (rankIndex.isWarm()) {
+            // 排名與總人數由索引計算，資料庫只查詢分頁資料（依索引順序讀取 offset + limit 筆）
+            List<User> page = userRepository.findByWeeklyXpGreaterThanZeroWithOffset(limit, offset, currentWeek);
+            LeaderboardEntryDto currentUserEntry = currentUserId != null
+                ? getCurrentUserWeeklyXpRank(currentUserId, currentWeek)
+                : null;
+            return toIndexedPageResponse(page, offset, limit, rankIndex.countWeeklyActiveUsers(), currentUserEntry,
+                LeaderboardCursor.KIND_WEEKLY, User::getWeeklyXp, rankIndex::getWeeklyXpRank);
+        }
+
+        // 索引尚未預熱：單一查詢取得分頁資料、排名（RANK() OVER）、總人數與當前使用者列，一次資料庫往返
+        List<LeaderboardRowView> rows = userRepository.findWeeklyXpLeaderboardPage(
+            limit, offset, currentUserId, currentWeek);
+
+        return toPageResponse(rows, offset, limit, LeaderboardCursor.KIND_WEEKLY, LeaderboardRowView::getWeeklyXp,
+            () -> userRepository.countByWeeklyXpGreaterThanAndWeeklyXpWeek(0, currentWeek));
+    }
+
+    /**
+     * 取得本週經驗值排行榜（keyset 分頁）
+     * 從游標位置往後查詢，查詢成本不隨頁數增加（無限捲動用）
+     *
+     * @param limit 每頁回傳人數（預設 20）
+     * @param cursor 上一頁回傳的 nextCursor
+     * @param currentUserId 當前使用者 ID（可為 null）
+     * @return 排行榜回應資料
+     * @throws IllegalArgumentException 游標格式錯誤時
+     */
+    public LeaderboardResponseDto getWeeklyXpLeaderboardWithCursor(int limit, String cursor, UUID currentUserId) {
+        LeaderboardCursor after = LeaderboardCursor.decode(cursor, LeaderboardCursor.KIND_WEEKLY);
+        int currentWeek = WeekNumber.current();
+
+        // 多查一筆以判斷是否還有下一頁
+        List<User> users = userRepository.findByWeeklyXpGreaterThanZeroAfter(
+            after.getXp(), after.getCreatedAt(), after.getId(), currentWeek, limit + 1);
+        boolean hasMore = users.size() > limit;
+        List<User> page = hasMore ? users.subList(0, limit) : users;
+
+        long total = rankIndex.isWarm()
+            ? rankIndex.countWeeklyActiveUsers()
+            : userRepository.countByWeeklyXpGreaterThanAndWeeklyXpWeek(0, currentWeek);
+
+        List<LeaderboardEntryDto> leaderboard = toRankedEntries(page, User::getWeeklyXp,
+            xp -> rankIndex.getWeeklyXpRank(xp),
+            xp -> userRepository.countByWeeklyXpGreaterThanAndWeeklyXpWeek(xp, currentWeek));
 
-        // 如果有當前使用者 ID，計算其排名
         LeaderboardEntryDto currentUserEntry = null;
         if (currentUserId != null) {
-            currentUserEntry = getCurrentUserWeeklyXpRank(currentUserId);
+            currentUserEntry = getCurrentUserWeeklyXpRank(currentUserId, currentWeek);
         }
 
         return LeaderboardResponseDto.builder()
@@ -146,6 +196,7 @@ public class LeaderboardService {
             .currentUserEntry(currentUserEntry)
             .total(total)
             .hasMore(hasMore)
+            .nextCursor(buildNextCursor(page, hasMore, LeaderboardCursor.KIND_WEEKLY, User::getWeeklyXp))
             .build();
     }
 
@@ -162,7 +213,7 @@ public class LeaderboardService {
         }
 
         // 計算排名：比當前使用者經驗值高的人數 + 1
-        long rank = userRepository.countByTotalXpGreaterThan(currentUser.getTotalXp()) + 1;
+        long rank = getTotalXpRank(currentUser.getTotalXp());
 
         return convertToLeaderboardEntry(currentUser, String.valueOf(rank));
     }
@@ -171,25 +222,242 @@ public class LeaderboardService {
      * 取得當前使用者在本週經驗值排行榜中的排名
      *
      * @param userId 使用者 ID
+     * @param currentWeek 目前週次
      * @return 當前使用者的排行榜項目
      */
-    private LeaderboardEntryDto getCurrentUserWeeklyXpRank(UUID userId) {
+    private LeaderboardEntryDto getCurrentUserWeeklyXpRank(UUID userId, int currentWeek) {
         User currentUser = userRepository.findById(userId).orElse(null);
         if (currentUser == null) {
             return null;
         }
 
-        // 如果本週經驗值為 0，排名顯示 "-"
-        if (currentUser.getWeeklyXp() == 0) {
+        // 如果本週經驗值為 0（或屬於過去的週次），排名顯示 "-"
+        int weeklyXp = currentUser.getEffectiveWeeklyXp(currentWeek);
+        if (weeklyXp == 0) {
             return convertToLeaderboardEntry(currentUser, "-");
         }
 
         // 計算排名：比當前使用者經驗值高的人數 + 1
-        long rank = userRepository.countByWeeklyXpGreaterThan(currentUser.getWeeklyXp()) + 1;
+        long rank = getWeeklyXpRank(weeklyXp, currentWeek);
 
         return convertToLeaderboardEntry(currentUser, String.valueOf(rank));
     }
 
+    /**
+     * 計算總經驗值排名
+     * 排名索引已預熱時為 O(log n) 記憶體查詢，否則退回 SQL COUNT
+     *
+     * @param totalXp 總經驗值
+     * @return 排名（比此經驗值高的人數 + 1）
+     */
+    private long getTotalXpRank(int totalXp) {
+        if (rankIndex.isWarm()) {
+            return rankIndex.getTotalXpRank(totalXp);
+        }
+        return userRepository.countByTotalXpGreaterThan(totalXp) + 1;
+    }
+
+    /**
+     * 計算本週經驗值排名
+     * 排名索引已預熱時為 O(log n) 記憶體查詢，否則退回 SQL COUNT
+     *
+     * @param weeklyXp 本週經驗值
+     * @param currentWeek 目前週次
+     * @return 排名（比此經驗值高的人數 + 1）
+     */
+    private long getWeeklyXpRank(int weeklyXp, int currentWeek) {
+        if (rankIndex.isWarm()) {
+            return rankIndex.getWeeklyXpRank(weeklyXp);
+        }
+        return userRepository.countByWeeklyXpGreaterThanAndWeeklyXpWeek(weeklyXp, currentWeek) + 1;
+    }
+
+    /**
+     * 為 keyset 分頁的使用者加上排名（RANK 語意：比此經驗值高的人數 + 1）
+     *
+     * 說明：
+     * - 排名索引已預熱時，每列為 O(log n) 記憶體查詢
+     * - 未預熱時只查詢兩次 COUNT（與頁面大小無關）：
+     *   經驗值與第一列相同的列，排名為「高於第一列經驗值的人數 + 1」；
+     *   其他列高於它的人包含「所有經驗值 >= 第一列的人」加上本頁中排在它前面、經驗值低於第一列的列
+     *   （分頁依經驗值降序，經驗值介於兩者之間的人一定都在本頁中）
+     *
+     * @param page 本頁使用者（依經驗值降序）
+     * @param xpGetter 排序用經驗值欄位
+     * @param indexRank 排名索引的排名查詢
+     * @param countGreaterThan 經驗值大於指定值的人數（SQL）
+     * @return 排行榜項目列表
+     */
+    private List<LeaderboardEntryDto> toRankedEntries(List<User> page,
+                                                      ToIntFunction<User> xpGetter,
+                                                      IntToLongFunction indexRank,
+                                                      IntToLongFunction countGreaterThan) {
+        if (page.isEmpty()) {
+            return List.of();
+        }
+        if (rankIndex.isWarm()) {
+            return page.stream()
+                .map(user -> convertToLeaderboardEntry(user, String.valueOf(indexRank.applyAsLong(xpGetter.applyAsInt(user)))))
+                .collect(Collectors.toList());
+        }
+
+        int topXp = xpGetter.applyAsInt(page.get(0));
+        long aboveTop = countGreaterThan.applyAsLong(topXp);
+        // 經驗值為整數：>= topXp 等同 > topXp - 1
+        long atOrAboveTop = countGreaterThan.applyAsLong(topXp - 1);
+
+        List<LeaderboardEntryDto> entries = new ArrayList<>(page.size());
+        int rowsAtTopXp = 0;
+        long rank = aboveTop + 1;
+        for (int i = 0; i < page.size(); i++) {
+            int xp = xpGetter.applyAsInt(page.get(i));
+            if (xp == topXp) {
+                rowsAtTopXp++;
+            } else if (xp != xpGetter.applyAsInt(page.get(i - 1))) {
+                rank = atOrAboveTop + (i - rowsAtTopXp) + 1;
+            }
+            entries.add(convertToLeaderboardEntry(page.get(i), String.valueOf(rank)));
+        }
+        return entries;
+    }
+
+    /**
+     * 以排名索引組成 offset 分頁的排行榜回應（索引已預熱時使用）
+     *
+     * @param page 本頁使用者（依經驗值降序）
+     * @param offset 起始位置
+     * @param limit 每頁人數
+     * @param total 排行榜總人數（索引）
+     * @param currentUserEntry 當前使用者項目（未登入時為 null）
+     * @param kind 排行榜類型（游標用）
+     * @param xpGetter 排序用經驗值欄位
+     * @param indexRank 排名索引的排名查詢
+     * @return 排行榜回應資料
+     */
+    private LeaderboardResponseDto toIndexedPageResponse(List<User> page,
+                                                         int offset,
+                                                         int limit,
+                                                         long total,
+                                                         LeaderboardEntryDto currentUserEntry,
+                                                         String kind,
+                                                         ToIntFunction<User> xpGetter,
+                                                         IntToLongFunction indexRank) {
+        List<LeaderboardEntryDto> leaderboard = page.stream()
+            .map(user -> convertToLeaderboardEntry(user, String.valueOf(indexRank.applyAsLong(xpGetter.applyAsInt(user)))))
+            .collect(Collectors.toList());
+
+        boolean hasMore = (offset + limit) < total;
+
+        return LeaderboardResponseDto.builder()
+            .leaderboard(leaderboard)
+            .currentUserEntry(currentUserEntry)
+            .total(total)
+            .hasMore(hasMore)
+            .nextCursor(buildNextCursor(page, hasMore, kind, xpGetter))
+            .build();
+    }
+
+    /**
+     * 將單一查詢的結果列組成排行榜回應（索引尚未預熱時使用）
+     *
+     * 說明：
+     * - currentUser = false 的列為分頁資料，currentUser = true 的列為當前使用者
+     * - 總人數取自 COUNT(*) OVER ()；只有分頁超出範圍且當前使用者未上榜時，才另外查詢總人數
+     *
+     * @param rows 查詢結果列
+     * @param offset 起始位置
+     * @param limit 每頁人數
+     * @param kind 排行榜類型（游標用）
+     * @param xpGetter 排序用經驗值欄位
+     * @param fallbackTotal 無法從結果列取得總人數時的備援查詢
+     * @return 排行榜回應資料
+     */
+    private LeaderboardResponseDto toPageResponse(List<LeaderboardRowView> rows,
+                                                  int offset,
+                                                  int limit,
+                                                  String kind,
+                                                  ToIntFunction<LeaderboardRowView> xpGetter,
+                                                  LongSupplier fallbackTotal) {
+        List<LeaderboardRowView> page = rows.stream()
+            .filter(row -> !Boolean.TRUE.equals(row.getCurrentUser()))
+            .collect(Collectors.toList());
+        LeaderboardRowView currentUserRow = rows.stream()
+            .filter(row -> Boolean.TRUE.equals(row.getCurrentUser()))
+            .findFirst()
+            .orElse(null);
+
+        Long totalCount = rows.stream()
+            .map(LeaderboardRowView::getTotalCount)
+            .filter(Objects::nonNull)
+            .findFirst()
+            .orElse(null);
+        long total;
+        if (totalCount != null) {
+            total = totalCount;
+        } else if (offset == 0) {
+            // 第一頁就沒有資料，表示排行榜為空
+            total = 0;
+        } else {
+            total = fallbackTotal.getAsLong();
+        }
+
+        List<LeaderboardEntryDto> leaderboard = page.stream()
+            .map(this::convertToLeaderboardEntry)
+            .collect(Collectors.toList());
+
+        // 計算是否有更多資料
+        boolean hasMore = (offset + limit) < total;
+
+        String nextCursor = null;
+        if (hasMore && !page.isEmpty()) {
+            LeaderboardRowView last = page.get(page.size() - 1);
+            nextCursor = new LeaderboardCursor(kind, xpGetter.applyAsInt(last), last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return LeaderboardResponseDto.builder()
+            .leaderboard(leaderboard)
+            .currentUserEntry(currentUserRow != null ? convertToLeaderboardEntry(currentUserRow) : null)
+            .total(total)
+            .hasMore(hasMore)
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    /**
+     * 以本頁最後一筆建立下一頁的游標
+     *
+     * @param page 本頁使用者
+     * @param hasMore 是否還有下一頁
+     * @param kind 排行榜類型
+     * @param xpGetter 排序用經驗值欄位
+     * @return 游標字串（沒有下一頁時為 null）
+     */
+    private String buildNextCursor(List<User> page, boolean hasMore, String kind, ToIntFunction<User> xpGetter) {
+        if (!hasMore || page.isEmpty()) {
+            return null;
+        }
+        User last = page.get(page.size() - 1);
+        return new LeaderboardCursor(kind, xpGetter.applyAsInt(last), last.getCreatedAt(), last.getId()).encode();
+    }
+
+    /**
+     * 將查詢結果列轉換為 LeaderboardEntryDto
+     *
+     * @param row 排行榜查詢結果列
+     * @return 排行榜項目 DTO（未上榜時排名為 "-"）
+     */
+    private LeaderboardEntryDto convertToLeaderboardEntry(LeaderboardRowView row) {
+        return LeaderboardEntryDto.builder()
+            .rank(row.getRank() != null ? String.valueOf(row.getRank()) : "-")
+            .userId(row.getId().toString())
+            .displayName(row.getDisplayName())
+            .avatarUrl(row.getAvatarUrl())
+            .level(row.getLevel())
+            .totalXp(row.getTotalXp())
+            .weeklyXp(row.getWeeklyXp())
+            .build();
+    }
+
     /**
      * 將 User 轉換為 LeaderboardEntryDto
      *
@@ -205,7 +473,7 @@ public class LeaderboardService {
             .avatarUrl(user.getAvatarUrl())
             .level(user.getLevel())
             .totalXp(user.getTotalXp())
-            .weeklyXp(user.getWeeklyXp())
+            .weeklyXp(user.getEffectiveWeeklyXp())
             .build();
     }
 }
@@ -0,0 +1,57 @@
+package com.wsa.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * 訂單列表 keyset 分頁游標
+ * 記錄上一頁最後一筆的排序鍵（建立時間 DESC、id DESC）
+ *
+ * 對外以 Base64 URL-safe 字串表示，前端應視為不透明（opaque）的值
+ */
+@Getter
+@AllArgsConstructor
+public class OrderCursor {
+
+    /** 上一頁最後一筆的建立時間 */
+    private final LocalDateTime createdAt;
+
+    /** 上一頁最後一筆的訂單 ID */
+    private final UUID id;
+
+    /**
+     * 編碼為不透明字串
+     *
+     * @return 游標字串
+     */
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游標字串
+     *
+     * @param cursor 游標字串
+     * @return 游標
+     * @throws IllegalArgumentException 游標格式錯誤時
+     */
+    public static OrderCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("無效的訂單游標");
+            }
+            return new OrderCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("無效的訂單游標", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.wsa.service;
+
+import com.wsa.dto.CreateOrderResponse;
+import com.wsa.dto.PayOrderResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * 訂單冪等操作
+ * 為建立訂單與付款加上 Idempotency-Key 支援，供 API 層使用
+ *
+ * 用法：Controller 讀取 IdempotencyService.IDEMPOTENCY_KEY_HEADER header 後呼叫此服務；
+ * 未帶冪等鍵時與直接呼叫 OrderService 相同
+ *
+ * 重要：
+ *   - 重複的冪等鍵直接回傳保存的結果，不會查詢 orders、courses 或 user_courses
+ *   - 冪等判斷在 OrderService 的交易之外進行，只有第一次請求會開啟交易
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderIdempotencyService {
+
+    private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+
+    /**
+     * 建立訂單（支援冪等鍵）
+     *
+     * @param userId 使用者 ID
+     * @param courseId 課程 ID
+     * @param idempotencyKey 冪等鍵（可為 null）
+     * @return 訂單編號
+     */
+    public CreateOrderResponse createOrder(UUID userId, UUID courseId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return orderService.createOrder(userId, courseId);
+        }
+        return idempotencyService.execute("createOrder", userId, idempotencyKey, courseId.toString(),
+            CreateOrderResponse.class, () -> orderService.createOrder(userId, courseId));
+    }
+
+    /**
+     * 訂單付款（支援冪等鍵）
+     *
+     * @param orderNo 訂單編號
+     * @param userId 使用者 ID
+     * @param idempotencyKey 冪等鍵（可為 null）
+     * @return 付款結果
+     */
+    public PayOrderResponse payOrder(String orderNo, UUID userId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return orderService.payOrder(orderNo, userId);
+        }
+        return idempotencyService.execute("payOrder", userId, idempotencyKey, orderNo,
+            PayOrderResponse.class, () -> orderService.payOrder(orderNo, userId));
+    }
+}
@@ -0,0 +1,125 @@
+package com.wsa.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 訂單編號產生器
+ * 格式：yyyyMMddHHmmss + 2 位十六進位節點 ID + 4 位十六進位序號
+ * 例如：202511211609400300a6（節點 03、序號 00a6）
+ *
+ * 特性：
+ *   - 同一節點內不會重複：每秒最多 65536 個序號，以 CAS 遞增，不加鎖、不阻塞
+ *   - 序號用完時借用下一秒（時間前綴可能略早於實際時間前進）；系統時間倒退時沿用上次的秒數
+ *   - 限制：持續每秒超過 65536 個時，時間前綴會持續領先實際時間；在領先期間重新啟動，
+ *     新的執行個體從啟動時的下一秒開始，可能再次產生重新啟動前已借用秒數的編號。
+ *     借用的秒數不會保存（不持久化高水位），重複的編號由 orders.order_no 的 UNIQUE 約束拒絕（建立訂單失敗，不會產生重複的訂單）
+ *   - 不同節點以節點 ID 區分（order.node-id 或環境變數 ORDER_NODE_ID，0-255），多個執行個體必須設定不同的值；
+ *     prod 或 heroku profile 未設定時啟動失敗，其他 profile 未設定時使用節點 0
+ *   - 同一節點產生的編號依字串排序即為產生順序
+ */
+@Slf4j
+@Component
+public class OrderNoGenerator {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    /** 每秒可用的序號數 */
+    private static final int COUNTER_BITS = 16;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    private static final int MAX_NODE_ID = 0xFF;
+
+    /** 必須明確設定節點 ID 的 profile */
+    private static final Profiles NODE_ID_REQUIRED_PROFILES = Profiles.of("prod", "heroku");
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /** 節點 ID（十六進位兩碼） */
+    private final String nodeHex;
+
+    /** 目前狀態：高位為 epoch 秒數，低 16 位為該秒已使用的最後一個序號 */
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public OrderNoGenerator(@Value("${order.node-id:}") String configuredNodeId, Environment environment) {
+        this(resolveNodeId(configuredNodeId, environment));
+    }
+
+    public OrderNoGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("order.node-id 必須介於 0 到 " + MAX_NODE_ID + "：" + nodeId);
+        }
+        this.nodeHex = String.format("%02x", nodeId);
+        // 初始為「目前秒數、序號已用完」，第一個編號從下一秒開始，避免與重新啟動前同一秒產生的編號重複
+        long startSecond = Instant.now().getEpochSecond();
+        this.state.set((startSecond << COUNTER_BITS) | COUNTER_MASK);
+    }
+
+    /**
+     * 產生下一個訂單編號
+     *
+     * @return 訂單編號
+     */
+    public String next() {
+        long nowSecond = Instant.now().getEpochSecond();
+        while (true) {
+            long previous = state.get();
+            long previousSecond = previous >>> COUNTER_BITS;
+            long previousCounter = previous & COUNTER_MASK;
+
+            long second;
+            long counter;
+            if (nowSecond > previousSecond) {
+                second = nowSecond;
+                counter = 0;
+            } else if (previousCounter < COUNTER_MASK) {
+                second = previousSecond;
+                counter = previousCounter + 1;
+            } else {
+                // 此秒序號已用完，借用下一秒
+                second = previousSecond + 1;
+                counter = 0;
+            }
+
+            long next = (second << COUNTER_BITS) | counter;
+            if (state.compareAndSet(previous, next)) {
+                return format(second, counter);
+            }
+        }
+    }
+
+    /**
+     * 決定節點 ID：已設定時使用設定值；未設定時，prod 或 heroku profile 啟動失敗，其他 profile 使用 0
+     */
+    private static int resolveNodeId(String configuredNodeId, Environment environment) {
+        if (configuredNodeId != null && !configuredNodeId.isBlank()) {
+            try {
+                return Integer.parseInt(configuredNodeId.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("order.node-id 必須是 0 到 " + MAX_NODE_ID + " 的整數：" + configuredNodeId);
+            }
+        }
+        if (environment.acceptsProfiles(NODE_ID_REQUIRED_PROFILES)) {
+            throw new IllegalStateException(
+                "未設定 order.node-id（環境變數 ORDER_NODE_ID）：多個執行個體共用節點 0 會產生重複的訂單編號");
+        }
+        log.warn("[OrderNoGenerator] 未設定 order.node-id，使用節點 0（只適用單一執行個體）");
+        return 0;
+    }
+
+    private String format(long epochSecond, long counter) {
+        String datePart = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone).format(DATE_FORMAT);
+        return datePart + nodeHex + String.format("%04x", counter);
+    }
+}
@@ -1,23 +1,30 @@
 package com.wsa.service;
 
 import com.wsa.dto.CreateOrderResponse;
+import com.wsa.dto.OrderListResponseDto;
 import com.wsa.dto.OrderResponseDto;
 import com.wsa.dto.PayOrderResponse;
 import com.wsa.entity.Course;
 import com.wsa.entity.Order;
 import com.wsa.entity.UserCourse;
+import com.wsa.event.UserCoursesChangedEvent;
 import com.wsa.repository.CourseRepository;
+import com.wsa.repository.OrderBatchRepository;
+import com.wsa.repository.OrderQueryRepository;
 import com.wsa.repository.OrderRepository;
 import com.wsa.repository.UserCourseRepository;
+import com.wsa.repository.projection.OrderWithCourseTitle;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -31,22 +38,18 @@ import java.util.stream.Collectors;
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderBatchRepository orderBatchRepository;
+    private final OrderQueryRepository orderQueryRepository;
     private final CourseRepository courseRepository;
     private final UserCourseRepository userCourseRepository;
+    private final OrderNoGenerator orderNoGenerator;
+    private final ApplicationEventPublisher eventPublisher;
 
-    private static final DateTimeFormatter ORDER_NO_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-    private static final Random RANDOM = new Random();
+    /** 過期訂單取消時的備註 */
+    private static final String EXPIRED_MEMO = "期限內未完成付款";
 
-    /**
-     * 生成訂單編號
-     * 格式：YYYYMMDDHHmmss + 4位十六進位亂碼
-     * 例如：20251121160940a6e5
-     */
-    private String generateOrderNo() {
-        String datePart = LocalDateTime.now().format(ORDER_NO_DATE_FORMAT);
-        String randomPart = String.format("%04x", RANDOM.nextInt(0x10000)); // 0000-ffff
-        return datePart + randomPart;
-    }
+    /** 分頁查詢每頁最多筆數 */
+    public static final int MAX_PAGE_SIZE = 100;
 
     /**
      * 建立訂單
@@ -70,7 +73,7 @@ public class OrderService {
         }
 
         // 生成訂單編號
-        String orderNo = generateOrderNo();
+        String orderNo = orderNoGenerator.next();
 
         // 計算付款期限（3天後）
         LocalDateTime payDeadline = LocalDateTime.now().plusDays(3);
@@ -96,26 +99,19 @@ public class OrderService {
 
     /**
      * 取得單一訂單
+     * 訂單與課程名稱以單一 JOIN 查詢取得
      *
      * @param orderNo 訂單編號
-     * @return 訂單資料
+     * @return 訂單資料（已過期的待付款訂單顯示為已取消）
      */
+    @Transactional(readOnly = true)
     public OrderResponseDto getOrder(String orderNo) {
         log.info("[OrderService] 查詢訂單: orderNo={}", orderNo);
 
-        Order order = orderRepository.findByOrderNo(orderNo)
+        OrderWithCourseTitle row = orderQueryRepository.findByOrderNoWithCourseTitle(orderNo)
                 .orElseThrow(() -> new RuntimeException("訂單不存在"));
 
-        // 檢查是否過期
-        if (Order.Status.PENDING.equals(order.getStatus()) &&
-                LocalDateTime.now().isAfter(order.getPayDeadline())) {
-            cancelExpiredOrder(order);
-        }
-
-        Course course = courseRepository.findById(order.getCourseId())
-                .orElseThrow(() -> new RuntimeException("課程不存在"));
-
-        return OrderResponseDto.from(order, course.getTitle());
+        return toResponse(row.getOrder(), row.getCourseTitle(), LocalDateTime.now());
     }
 
     /**
@@ -129,7 +125,8 @@ public class OrderService {
     public PayOrderResponse payOrder(String orderNo, UUID userId) {
         log.info("[OrderService] 訂單付款: orderNo={}, userId={}", orderNo, userId);
 
-        Order order = orderRepository.findByOrderNo(orderNo)
+        // 鎖定訂單列，避免與過期取消排程同時修改（排程的 CANCELLED 不會被 PAID 覆蓋）
+        Order order = orderQueryRepository.findByOrderNoForUpdate(orderNo)
                 .orElseThrow(() -> new RuntimeException("訂單不存在"));
 
         // 驗證訂單所有者
@@ -147,7 +144,7 @@ public class OrderService {
         }
 
         // 檢查是否過期
-        if (LocalDateTime.now().isAfter(order.getPayDeadline())) {
+        if (isExpired(order, LocalDateTime.now())) {
             cancelExpiredOrder(order);
             throw new RuntimeException("訂單已過期");
         }
@@ -165,6 +162,9 @@ public class OrderService {
                 .build();
         userCourseRepository.save(userCourse);
 
+        // 交易提交後清除擁有課程快取
+        eventPublisher.publishEvent(new UserCoursesChangedEvent(order.getUserId()));
+
         log.info("[OrderService] 訂單付款成功: orderNo={}", orderNo);
 
         return PayOrderResponse.builder()
@@ -175,81 +175,167 @@ public class OrderService {
 
     /**
      * 查詢某課程的所有訂單
+     * 訂單與課程名稱以單一 JOIN 查詢取得；沒有訂單時才確認課程是否存在
      *
      * @param courseId 課程 ID
-     * @return 訂單列表
+     * @return 訂單列表（已過期的待付款訂單顯示為已取消）
      */
+    @Transactional(readOnly = true)
     public List<OrderResponseDto> getCourseOrders(UUID courseId) {
         log.info("[OrderService] 查詢課程訂單: courseId={}", courseId);
 
-        List<Order> orders = orderRepository.findByCourseIdOrderByCreatedAtDesc(courseId);
-
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new RuntimeException("課程不存在"));
+        List<OrderWithCourseTitle> rows = orderQueryRepository.findByCourseIdWithCourseTitle(courseId);
+        if (rows.isEmpty() && !courseRepository.existsById(courseId)) {
+            throw new RuntimeException("課程不存在");
+        }
 
-        return orders.stream()
-                .map(order -> {
-                    // 檢查是否過期
-                    if (Order.Status.PENDING.equals(order.getStatus()) &&
-                            LocalDateTime.now().isAfter(order.getPayDeadline())) {
-                        cancelExpiredOrder(order);
-                    }
-                    return OrderResponseDto.from(order, course.getTitle());
-                })
+        LocalDateTime now = LocalDateTime.now();
+        return rows.stream()
+                .map(row -> toResponse(row.getOrder(), row.getCourseTitle(), now))
                 .collect(Collectors.toList());
     }
 
     /**
      * 查詢使用者的所有訂單
+     * 訂單與課程名稱以單一 JOIN 查詢取得
      *
      * @param userId 使用者 ID
-     * @return 訂單列表
+     * @return 訂單列表（已過期的待付款訂單顯示為已取消）
      */
+    @Transactional(readOnly = true)
     public List<OrderResponseDto> getUserOrders(UUID userId) {
         log.info("[OrderService] 查詢使用者訂單: userId={}", userId);
 
-        List<Order> orders = orderRepository.findByUserIdOrderByCreatedAtDesc(userId);
+        List<OrderWithCourseTitle> rows = orderQueryRepository.findByUserIdWithCourseTitle(userId, Pageable.unpaged());
 
-        return orders.stream()
-                .map(order -> {
-                    // 檢查是否過期
-                    if (Order.Status.PENDING.equals(order.getStatus()) &&
-                            LocalDateTime.now().isAfter(order.getPayDeadline())) {
-                        cancelExpiredOrder(order);
-                    }
+        LocalDateTime now = LocalDateTime.now();
+        return rows.stream()
+                .map(row -> toResponse(row.getOrder(), row.getCourseTitle(), now))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 以 keyset 分頁查詢使用者的訂單（適用訂單很多的使用者）
+     *
+     * @param userId 使用者 ID
+     * @param cursor 上一頁回傳的游標（第一頁為 null）
+     * @param size 每頁筆數（1 ~ MAX_PAGE_SIZE）
+     * @return 訂單列表與下一頁游標
+     * @throws IllegalArgumentException 每頁筆數或游標格式錯誤時
+     */
+    @Transactional(readOnly = true)
+    public OrderListResponseDto getUserOrders(UUID userId, String cursor, int size) {
+        log.info("[OrderService] 分頁查詢使用者訂單: userId={}, size={}", userId, size);
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("每頁筆數必須介於 1 到 " + MAX_PAGE_SIZE);
+        }
+
+        // 多取一筆判斷是否還有下一頁
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<OrderWithCourseTitle> rows;
+        if (cursor == null) {
+            rows = orderQueryRepository.findByUserIdWithCourseTitle(userId, page);
+        } else {
+            OrderCursor after = OrderCursor.decode(cursor);
+            rows = orderQueryRepository.findByUserIdWithCourseTitleAfter(userId, after.getCreatedAt(), after.getId(), page);
+        }
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
 
-                    Course course = courseRepository.findById(order.getCourseId())
-                            .orElseThrow(() -> new RuntimeException("課程不存在"));
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = rows.get(rows.size() - 1).getOrder();
+            nextCursor = new OrderCursor(last.getCreatedAt(), last.getId()).encode();
+        }
 
-                    return OrderResponseDto.from(order, course.getTitle());
-                })
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderResponseDto> orders = rows.stream()
+                .map(row -> toResponse(row.getOrder(), row.getCourseTitle(), now))
                 .collect(Collectors.toList());
+
+        return OrderListResponseDto.builder()
+                .orders(orders)
+                .hasMore(hasMore)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     /**
      * 查詢使用者的未完成訂單（pending 且尚未過期）
+     * 訂單與課程名稱以單一 JOIN 查詢取得
      *
      * @param userId 使用者 ID
      * @return 訂單列表
      */
+    @Transactional(readOnly = true)
     public List<OrderResponseDto> getPendingOrders(UUID userId) {
         log.info("[OrderService] 查詢未完成訂單: userId={}", userId);
 
-        List<Order> orders = orderRepository.findPendingOrdersByUserId(
+        List<OrderWithCourseTitle> rows = orderQueryRepository.findPendingByUserIdWithCourseTitle(
                 userId,
                 Order.Status.PENDING,
                 LocalDateTime.now()
         );
 
-        return orders.stream()
-                .map(order -> {
-                    Course course = courseRepository.findById(order.getCourseId())
-                            .orElseThrow(() -> new RuntimeException("課程不存在"));
-                    return OrderResponseDto.from(order, course.getTitle());
-                })
+        return rows.stream()
+                .map(row -> OrderResponseDto.from(row.getOrder(), row.getCourseTitle()))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 將訂單轉換為回應資料，並套用有效狀態
+     * 已超過付款期限的待付款訂單顯示為已取消，但不寫入資料庫（實際狀態由 ExpiredOrderCancellationJob 更新）
+     *
+     * 注意：只修改新建立的回應資料，不修改（也不脫離）持久化內容中的訂單實體
+     *
+     * @param order 訂單
+     * @param courseTitle 課程名稱
+     * @param now 目前時間
+     * @return 訂單回應資料
+     */
+    private OrderResponseDto toResponse(Order order, String courseTitle, LocalDateTime now) {
+        OrderResponseDto response = OrderResponseDto.from(order, courseTitle);
+        response.setStatus(effectiveStatus(order, now));
+        response.setMemo(effectiveMemo(order, now));
+        return response;
+    }
+
+    /**
+     * 計算訂單的有效狀態：已過期的待付款訂單為已取消，其他為資料庫中的狀態
+     *
+     * @param order 訂單
+     * @param now 目前時間
+     * @return 有效狀態
+     */
+    private static Order.Status effectiveStatus(Order order, LocalDateTime now) {
+        return isExpired(order, now) ? Order.Status.CANCELLED : order.getStatus();
+    }
+
+    /**
+     * 計算訂單的有效備註：已過期的待付款訂單為過期取消的備註，其他為資料庫中的備註
+     *
+     * @param order 訂單
+     * @param now 目前時間
+     * @return 有效備註
+     */
+    private static String effectiveMemo(Order order, LocalDateTime now) {
+        return isExpired(order, now) ? EXPIRED_MEMO : order.getMemo();
+    }
+
+    /**
+     * 判斷訂單是否為已超過付款期限的待付款訂單
+     *
+     * @param order 訂單
+     * @param now 目前時間
+     * @return true 表示已過期
+     */
+    private static boolean isExpired(Order order, LocalDateTime now) {
+        return Order.Status.PENDING.equals(order.getStatus()) && now.isAfter(order.getPayDeadline());
+    }
+
     /**
      * 取消過期訂單
      *
@@ -264,25 +350,35 @@ public class OrderService {
         log.info("[OrderService] 取消過期訂單: orderNo={}", order.getOrderNo());
 
         order.setStatus(Order.Status.CANCELLED);
-        order.setMemo("期限內未完成付款");
+        order.setMemo(EXPIRED_MEMO);
         orderRepository.save(order);
     }
 
     /**
      * 批次檢查並取消過期訂單
-     * 可由排程任務定期呼叫
+     * 由 ExpiredOrderCancellationJob 定期呼叫
+     *
+     * 重要：
+     *   - 每批以單一 UPDATE 語句取消最多 chunkSize 筆，不將訂單載入記憶體
+     *   - 每批各自提交，不會長時間鎖住大量訂單
+     *   - 直到某批少於 chunkSize 筆為止
+     *
+     * @param chunkSize 每批最多取消的筆數
+     * @return 已取消的訂單編號
      */
-    @Transactional
-    public void checkAndCancelExpiredOrders() {
-        log.info("[OrderService] 檢查過期訂單");
-
-        List<Order> expiredOrders = orderRepository.findExpiredOrders(
-                Order.Status.PENDING,
-                LocalDateTime.now()
-        );
-
-        expiredOrders.forEach(this::cancelExpiredOrder);
-
-        log.info("[OrderService] 已取消 {} 筆過期訂單", expiredOrders.size());
+    public List<String> checkAndCancelExpiredOrders(int chunkSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> cancelled = new ArrayList<>();
+
+        List<String> chunk;
+        do {
+            chunk = orderBatchRepository.cancelExpiredOrders(now, EXPIRED_MEMO, chunkSize);
+            cancelled.addAll(chunk);
+        } while (chunk.size() >= chunkSize);
+
+        if (!cancelled.isEmpty()) {
+            log.info("[OrderService] 已取消 {} 筆過期訂單: {}", cancelled.size(), cancelled);
+        }
+        return cancelled;
     }
 }
@@ -0,0 +1,117 @@
+package com.wsa.service;
+
+import com.wsa.entity.Course;
+import com.wsa.event.UserCoursesChangedEvent;
+import com.wsa.repository.UserCourseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 使用者擁有課程快取
+ * 課程擁有權只會在購買或重置資料時變更，但單元詳情、課程列表與課程詳情每次都需要判斷，
+ * 快取後擁有權判斷只需查詢記憶體
+ *
+ * 重要：
+ *   - 每位使用者以 BitSet 保存，位元索引為課程目錄快照中的課程序號（CatalogSnapshot.getCourseOrdinal）
+ *   - 本執行個體的擁有權變更由 UserCoursesChangedEvent 於交易提交後清除
+ *   - 其他執行個體的變更（購買、重置）沒有通知，依存活時間（user-course.cache.ttl-ms）過期後重新查詢
+ *   - 只信任快取中的「擁有」：isOwned 在快取中未擁有時一律再查詢資料庫，
+ *     其他執行個體剛完成付款的課程不會因快取而被拒絕存取
+ */
+@Service
+public class OwnedCourseCache {
+
+    private final UserCourseRepository userCourseRepository;
+    private final CatalogService catalogService;
+
+    /** 使用者 UUID → 擁有的課程 */
+    private final UserBitSetCache cache;
+
+    public OwnedCourseCache(UserCourseRepository userCourseRepository,
+                            CatalogService catalogService,
+                            @Value("${user-course.cache.max-size:10000}") int maxSize,
+                            @Value("${user-course.cache.ttl-ms:30000}") long ttlMillis) {
+        this.userCourseRepository = userCourseRepository;
+        this.catalogService = catalogService;
+        this.cache = new UserBitSetCache(maxSize, ttlMillis);
+    }
+
+    /**
+     * 檢查使用者是否擁有特定課程（用於存取權限判斷）
+     * 快取中擁有時直接回傳；快取中未擁有時查詢資料庫確認，查到已擁有則清除該使用者的快取
+     *
+     * @param userId 使用者 UUID
+     * @param courseId 課程 UUID
+     * @return true 表示擁有
+     */
+    public boolean isOwned(UUID userId, UUID courseId) {
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        int ordinal = catalog.getCourseOrdinal(courseId);
+        if (ordinal < 0) {
+            // 不在目錄快照中的課程（例如剛新增、快照尚未重新載入）直接查詢資料庫
+            return userCourseRepository.existsByUserIdAndCourseId(userId, courseId);
+        }
+        if (getOwned(userId, catalog).get(ordinal)) {
+            return true;
+        }
+
+        // 快取中未擁有：可能是其他執行個體剛完成購買，拒絕存取前以資料庫確認
+        boolean owned = userCourseRepository.existsByUserIdAndCourseId(userId, courseId);
+        if (owned) {
+            cache.invalidate(userId);
+        }
+        return owned;
+    }
+
+    /**
+     * 取得使用者擁有的所有課程 ID
+     *
+     * @param userId 使用者 UUID
+     * @return 擁有的課程 UUID 集合
+     */
+    public Set<UUID> getOwnedCourseIds(UUID userId) {
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        BitSet owned = getOwned(userId, catalog);
+        List<Course> courses = catalog.getCourses();
+
+        Set<UUID> courseIds = new HashSet<>();
+        for (int i = owned.nextSetBit(0); i >= 0; i = owned.nextSetBit(i + 1)) {
+            courseIds.add(courses.get(i).getId());
+        }
+        return courseIds;
+    }
+
+    /**
+     * 使用者課程擁有權變更（交易提交後）時清除快取
+     *
+     * @param event 擁有權變更事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserCoursesChanged(UserCoursesChangedEvent event) {
+        cache.invalidate(event.getUserId());
+    }
+
+    /**
+     * 取得使用者擁有課程的 BitSet（快取未命中時以單一查詢載入）
+     */
+    private BitSet getOwned(UUID userId, CatalogSnapshot catalog) {
+        return cache.get(userId, catalog, () -> {
+            BitSet owned = new BitSet(catalog.getCourses().size());
+            for (UUID courseId : userCourseRepository.findCourseIdsByUserId(userId)) {
+                int ordinal = catalog.getCourseOrdinal(courseId);
+                if (ordinal >= 0) {
+                    owned.set(ordinal);
+                }
+            }
+            return owned;
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package com.wsa.service;
+
+import com.wsa.repository.UserUnitProgressBatchRepository;
+import com.wsa.repository.UserUnitProgressBatchRepository.PositionUpdate;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 觀看進度寫入緩衝區（write-behind）
+ * 播放器每 5 秒回報一次觀看位置，此緩衝區只保留每個 (userId, unitId) 最新的位置，
+ * 並定期以單一批次 upsert 寫入資料庫，避免每次心跳都寫入
+ *
+ * 重要：
+ *   - flush 成功後才會從緩衝區移除；若 flush 期間又收到新位置，新位置會留到下一次 flush
+ *   - 批次寫入失敗時改為逐筆寫入：違反資料完整性（例如單元已刪除）的資料直接捨棄，
+ *     其他錯誤（例如資料庫無法連線）時剩餘資料保留在緩衝區，下一次排程重試
+ *   - 緩衝區達到筆數上限（progress.buffer.max-size）時由寫入的執行緒同步 flush；
+ *     flush 後仍在上限時該筆直接寫入資料庫（資料庫錯誤會傳回呼叫端），緩衝區不會無限制成長
+ *   - 應用程式關閉前會再 flush 一次
+ *   - 讀取觀看位置時應先查詢緩衝區（getBufferedPosition），緩衝區的值比資料庫新
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProgressWriteBuffer {
+
+    private final UserUnitProgressBatchRepository batchRepository;
+
+    /** 尚未寫入資料庫的最新觀看位置 */
+    private final Map<ProgressKey, PositionUpdate> pending = new ConcurrentHashMap<>();
+
+    /** 避免排程與關閉流程同時 flush */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /** 緩衝區筆數上限 */
+    @Value("${progress.buffer.max-size:50000}")
+    private int maxSize;
+
+    /**
+     * 記錄最新的觀看位置（覆蓋同一單元尚未寫入的舊位置）
+     *
+     * @param userId 使用者 UUID
+     * @param unitId 單元 UUID
+     * @param lastPositionSeconds 最後觀看到的秒數
+     */
+    public void record(UUID userId, UUID unitId, int lastPositionSeconds) {
+        ProgressKey key = new ProgressKey(userId, unitId);
+        PositionUpdate update = new PositionUpdate(userId, unitId, lastPositionSeconds, LocalDateTime.now());
+
+        if (pending.size() >= maxSize && !pending.containsKey(key)) {
+            // 緩衝區已滿：由此執行緒先寫入資料庫（背壓）
+            flush();
+            if (pending.size() >= maxSize) {
+                // 仍然寫不進資料庫：此筆直接寫入，失敗時由呼叫端處理，不再擴大緩衝區
+                batchRepository.upsertPosition(update);
+                return;
+            }
+        }
+        pending.put(key, update);
+    }
+
+    /**
+     * 取得緩衝區中尚未寫入的觀看位置
+     *
+     * @param userId 使用者 UUID
+     * @param unitId 單元 UUID
+     * @return 觀看秒數（緩衝區中沒有時為 empty）
+     */
+    public Optional<Integer> getBufferedPosition(UUID userId, UUID unitId) {
+        PositionUpdate update = pending.get(new ProgressKey(userId, unitId));
+        return update != null ? Optional.of(update.getLastPositionSeconds()) : Optional.empty();
+    }
+
+    /**
+     * 捨棄使用者所有尚未寫入的觀看位置
+     * 用途：重置使用者資料時，避免舊進度在重置後又被寫回
+     *
+     * @param userId 使用者 UUID
+     */
+    public void discardUser(UUID userId) {
+        // 等待進行中的 flush 完成，避免已取出的舊位置在重置後寫回
+        flushLock.lock();
+        try {
+            pending.keySet().removeIf(key -> key.userId.equals(userId));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 定期將緩衝區寫入資料庫
+     */
+    @Scheduled(fixedDelayString = "${progress.flush-interval-ms:10000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            List<Map.Entry<ProgressKey, PositionUpdate>> snapshot = new ArrayList<>(pending.entrySet());
+            List<PositionUpdate> updates = new ArrayList<>(snapshot.size());
+            snapshot.forEach(entry -> updates.add(entry.getValue()));
+
+            List<Map.Entry<ProgressKey, PositionUpdate>> done;
+            try {
+                batchRepository.upsertPositions(updates);
+                done = snapshot;
+            } catch (DataAccessException e) {
+                log.warn("[ProgressWriteBuffer] 觀看進度批次寫入失敗，改為逐筆寫入（{} 筆）", updates.size(), e);
+                done = flushRowByRow(snapshot);
+            }
+
+            // 只移除已寫入（或已捨棄）的值；flush 期間被覆蓋的新位置保留到下一次
+            done.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+            log.debug("[ProgressWriteBuffer] 已處理 {} 筆觀看進度", done.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 逐筆寫入觀看位置（批次寫入失敗時使用）
+     * 違反資料完整性的資料（例如單元或使用者已刪除）重試也不會成功，直接捨棄；
+     * 其他錯誤視為暫時性錯誤，停止寫入，剩餘資料留待下一次排程
+     *
+     * @param snapshot 本次要寫入的資料
+     * @return 已寫入或已捨棄的資料
+     */
+    private List<Map.Entry<ProgressKey, PositionUpdate>> flushRowByRow(List<Map.Entry<ProgressKey, PositionUpdate>> snapshot) {
+        List<Map.Entry<ProgressKey, PositionUpdate>> done = new ArrayList<>(snapshot.size());
+        for (Map.Entry<ProgressKey, PositionUpdate> entry : snapshot) {
+            PositionUpdate update = entry.getValue();
+            try {
+                batchRepository.upsertPosition(update);
+            } catch (DataIntegrityViolationException e) {
+                log.warn("[ProgressWriteBuffer] 捨棄無法寫入的觀看進度：userId={}, unitId={}（{}）",
+                    update.getUserId(), update.getUnitId(), e.getMostSpecificCause().getMessage());
+            } catch (DataAccessException e) {
+                log.warn("[ProgressWriteBuffer] 觀看進度寫入失敗，{} 筆將於下次重試",
+                    snapshot.size() - done.size(), e);
+                break;
+            }
+            done.add(entry);
+        }
+        return done;
+    }
+
+    /**
+     * 應用程式關閉前寫入剩餘的觀看位置
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * 緩衝區的鍵（使用者 + 單元）
+     */
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class ProgressKey {
+
+        private final UUID userId;
+        private final UUID unitId;
+    }
+}
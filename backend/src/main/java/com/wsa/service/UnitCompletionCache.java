@@ -0,0 +1,96 @@
+package com.wsa.service;
+
+import com.wsa.event.UnitCompletionChangedEvent;
+import com.wsa.repository.UserUnitProgressRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.BitSet;
+import java.util.UUID;
+
+/**
+ * 使用者單元完成快取
+ * 以單一查詢載入使用者所有已完成的單元，之後單元詳情與課程詳情的完成狀態只需查詢記憶體
+ *
+ * 重要：
+ *   - 每位使用者以 BitSet 保存，位元索引為課程目錄快照中的單元序號（CatalogSnapshot.getUnitOrdinal）
+ *   - 本執行個體的完成或重置由 UnitCompletionChangedEvent 於交易提交後套用
+ *   - 其他執行個體的變更沒有通知，依存活時間（progress.completion-cache.ttl-ms）過期後重新查詢；
+ *     因此只用於顯示，完成單元時仍以資料庫（markCompleted）判斷是否已完成
+ */
+@Service
+public class UnitCompletionCache {
+
+    private final UserUnitProgressRepository progressRepository;
+    private final CatalogService catalogService;
+
+    /** 使用者 UUID → 已完成的單元 */
+    private final UserBitSetCache cache;
+
+    public UnitCompletionCache(UserUnitProgressRepository progressRepository,
+                               CatalogService catalogService,
+                               @Value("${progress.completion-cache.max-size:10000}") int maxSize,
+                               @Value("${progress.completion-cache.ttl-ms:30000}") long ttlMillis) {
+        this.progressRepository = progressRepository;
+        this.catalogService = catalogService;
+        this.cache = new UserBitSetCache(maxSize, ttlMillis);
+    }
+
+    /**
+     * 檢查使用者是否已完成特定單元
+     *
+     * @param userId 使用者 UUID
+     * @param unitId 單元 UUID
+     * @return true 表示已完成
+     */
+    public boolean isCompleted(UUID userId, UUID unitId) {
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        int ordinal = catalog.getUnitOrdinal(unitId);
+        if (ordinal < 0) {
+            // 不在目錄快照中的單元直接查詢資料庫
+            return progressRepository.findByUserIdAndUnitId(userId, unitId)
+                .map(progress -> progress.getCompletedAt() != null)
+                .orElse(false);
+        }
+        return getCompletedUnits(userId, catalog).get(ordinal);
+    }
+
+    /**
+     * 取得使用者已完成的單元（位元索引為 catalog 的單元序號）
+     * 用途：課程詳情一次判斷所有單元的完成狀態
+     *
+     * @param userId 使用者 UUID
+     * @param catalog 課程目錄快照（必須與取得單元序號的快照相同）
+     * @return 已完成單元的 BitSet（唯讀，不得修改）
+     */
+    public BitSet getCompletedUnits(UUID userId, CatalogSnapshot catalog) {
+        return cache.get(userId, catalog, () -> {
+            BitSet completed = new BitSet(catalog.getUnitCount());
+            for (UUID unitId : progressRepository.findCompletedUnitIdsByUserId(userId)) {
+                int ordinal = catalog.getUnitOrdinal(unitId);
+                if (ordinal >= 0) {
+                    completed.set(ordinal);
+                }
+            }
+            return completed;
+        });
+    }
+
+    /**
+     * 單元完成狀態變更（交易提交後）時更新快取
+     * 完成單元時在快取中設定該位元；重置時清除使用者的快取
+     *
+     * @param event 完成狀態變更事件
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUnitCompletionChanged(UnitCompletionChangedEvent event) {
+        if (event.getUnitId() == null) {
+            cache.invalidate(event.getUserId());
+            return;
+        }
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        cache.setBit(event.getUserId(), catalog, catalog.getUnitOrdinal(event.getUnitId()));
+    }
+}
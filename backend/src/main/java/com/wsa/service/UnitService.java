@@ -4,15 +4,17 @@ import com.wsa.dto.CompleteUnitResponseDto;
 import com.wsa.dto.UnitDto;
 import com.wsa.entity.Course;
 import com.wsa.entity.Unit;
-import com.wsa.entity.User;
-import com.wsa.entity.UserUnitProgress;
-import com.wsa.repository.CourseRepository;
+import com.wsa.event.UnitCompletionChangedEvent;
 import com.wsa.repository.UnitRepository;
 import com.wsa.repository.UserUnitProgressRepository;
+import com.wsa.repository.projection.UnitDetailView;
+import com.wsa.repository.projection.UserXpLevelView;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -23,29 +25,49 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class UnitService {
 
+    private final CatalogService catalogService;
     private final UnitRepository unitRepository;
-    private final CourseRepository courseRepository;
     private final UserUnitProgressRepository progressRepository;
     private final UserCourseService userCourseService;
     private final XpService xpService;
+    private final ProgressWriteBuffer progressWriteBuffer;
+    private final UnitCompletionCache unitCompletionCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 根據單元 ID 取得單元詳情（包含存取權限判斷）
      *
+     * 查詢方式：
+     *   - 已登入且緩衝區中沒有觀看位置時，本來就需要查詢進度記錄，
+     *     因此以單一查詢（findUnitDetail）一併取得單元、課程、擁有權與進度，不依賴快取是否已載入
+     *   - 單元不在課程目錄快照中（例如快照尚未重新載入）時同樣使用單一查詢
+     *   - 其他情況（未登入、或緩衝區中已有觀看位置）由課程目錄快照與記憶體快取回應
+     *
      * @param unitId 單元 ID
      * @param userId 使用者 UUID（可為 null，表示未登入）
      * @return 單元詳情
      */
     public UnitDto getUnitByUnitId(String unitId, UUID userId) {
-        Unit unit = unitRepository.findByUnitId(unitId)
-            .orElseThrow(() -> new RuntimeException("找不到單元：" + unitId));
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        Unit unit = catalog.findUnitByUnitId(unitId).orElse(null);
+
+        Optional<Integer> bufferedPosition = userId != null && unit != null
+            ? progressWriteBuffer.getBufferedPosition(userId, unit.getId())
+            : Optional.empty();
+        if (unit == null || (userId != null && bufferedPosition.isEmpty())) {
+            return getUnitDetailInOneQuery(unitId, userId);
+        }
 
         // 查詢課程資訊
-        Course course = courseRepository.findById(unit.getCourseId())
+        Course course = catalog.findCourseById(unit.getCourseId())
             .orElseThrow(() -> new RuntimeException("找不到課程"));
 
-        // 計算使用者是否擁有該課程
+        // 計算使用者是否擁有該課程、是否已完成此單元（記憶體快取）
         boolean isOwned = userId != null && userCourseService.isUserOwnedCourse(userId, course.getId());
+        boolean isCompleted = userId != null && unitCompletionCache.isCompleted(userId, unit.getId());
+
+        // 緩衝區中尚未寫入資料庫的觀看位置較新
+        int lastPositionSeconds = bufferedPosition.orElse(0);
 
         // 計算存取權限（canAccess）
         // 規則：
@@ -55,26 +77,6 @@ public class UnitService {
         // - 其他情況 → false
         boolean canAccess = calculateCanAccess(userId, isOwned, unit.getIsFreePreview());
 
-        // 查詢使用者進度（包含是否完成與最後觀看位置）
-        boolean isCompleted = false;
-        int lastPositionSeconds = 0;
-
-        if (userId != null) {
-            UserUnitProgress progress = progressRepository
-                .findByUserIdAndUnitId(userId, unit.getId())
-                .orElse(null);
-
-            if (progress != null) {
-                // 判斷是否已完成（completedAt 不為 null）
-                isCompleted = progress.getCompletedAt() != null;
-
-                // 取得最後觀看位置（若為 null 則預設為 0）
-                lastPositionSeconds = progress.getLastPositionSeconds() != null
-                    ? progress.getLastPositionSeconds()
-                    : 0;
-            }
-        }
-
         // 建立 UnitDto
         UnitDto.UnitDtoBuilder builder = UnitDto.builder()
             .id(unit.getId())
@@ -100,14 +102,60 @@ public class UnitService {
         return builder.build();
     }
 
+    /**
+     * 以單一查詢取得單元詳情（單元、課程代碼與標題、擁有權與進度）
+     *
+     * @param unitId 單元 ID
+     * @param userId 使用者 UUID（可為 null，表示未登入）
+     * @return 單元詳情
+     */
+    private UnitDto getUnitDetailInOneQuery(String unitId, UUID userId) {
+        UnitDetailView detail = unitRepository.findUnitDetail(unitId, userId)
+            .orElseThrow(() -> new RuntimeException("找不到單元：" + unitId));
+
+        boolean canAccess = calculateCanAccess(userId, detail.getOwned(), detail.getIsFreePreview());
+
+        // 查詢期間緩衝區可能收到新的觀看位置，仍以緩衝區為優先
+        int lastPositionSeconds = 0;
+        if (userId != null) {
+            lastPositionSeconds = progressWriteBuffer.getBufferedPosition(userId, detail.getId())
+                .orElse(detail.getLastPositionSeconds() != null ? detail.getLastPositionSeconds() : 0);
+        }
+
+        UnitDto.UnitDtoBuilder builder = UnitDto.builder()
+            .id(detail.getId())
+            .unitId(detail.getUnitId())
+            .courseCode(detail.getCourseCode())
+            .courseTitle(detail.getCourseTitle())
+            .sectionTitle(detail.getSectionTitle())
+            .title(detail.getTitle())
+            .type(detail.getType())
+            .orderIndex(detail.getOrderIndex())
+            .orderInSection(detail.getOrderInSection())
+            .xpReward(detail.getXpReward())
+            .isFreePreview(detail.getIsFreePreview())
+            .canAccess(canAccess)
+            .isCompleted(detail.getCompleted())
+            .lastPositionSeconds(lastPositionSeconds);
+
+        // 當 canAccess = false 時，不回傳 videoUrl（保護影片資源）
+        if (canAccess) {
+            builder.videoUrl(detail.getVideoUrl());
+        }
+
+        return builder.build();
+    }
+
     /**
      * 完成單元並獲得經驗值
      * 如果已經完成過，不會重複給予經驗值
      *
      * 重要：
-     *   - 此方法會將 completedAt 設為目前時間
-     *   - 若該單元已有進度記錄（觀看中），則更新現有記錄
-     *   - 若該單元無進度記錄，則建立新記錄
+     *   - 以單一 upsert 語句將 completedAt 設為目前時間（不需先查詢進度記錄）
+     *   - 若該單元已有進度記錄（觀看中），則更新現有記錄；若無進度記錄，則建立新記錄
+     *   - 若已完成過，upsert 不會修改任何資料，並回報已完成
+     *   - 經驗值依 xp.pipeline.mode 在同一交易中寫入 xp_events（async）或直接更新 users（sync）；
+     *     async 模式回應中的經驗值與等級為預估值，users 由 XpEventConsumer 稍後套用
      *
      * @param unitId 單元 ID
      * @param userId 使用者 UUID
@@ -115,39 +163,22 @@ public class UnitService {
      */
     @Transactional
     public CompleteUnitResponseDto completeUnit(String unitId, UUID userId) {
-        Unit unit = unitRepository.findByUnitId(unitId)
+        Unit unit = catalogService.getSnapshot().findUnitByUnitId(unitId)
             .orElseThrow(() -> new RuntimeException("找不到單元：" + unitId));
 
-        // 查詢是否已有進度記錄
-        UserUnitProgress progress = progressRepository
-            .findByUserIdAndUnitId(userId, unit.getId())
-            .orElse(null);
-
-        // 檢查是否已經完成過（completedAt 不為 null）
-        if (progress != null && progress.getCompletedAt() != null) {
+        // 標記完成；影響筆數為 0 表示先前已經完成過
+        boolean newlyCompleted = progressRepository.markCompleted(userId, unit.getId()) > 0;
+        if (!newlyCompleted) {
             // 已經完成過，不重複給經驗值
             throw new RuntimeException("單元已經完成過了");
         }
 
-        if (progress == null) {
-            // 若不存在進度記錄，建立新記錄
-            progress = UserUnitProgress.builder()
-                .userId(userId)
-                .unitId(unit.getId())
-                .lastPositionSeconds(0)
-                .lastWatchedAt(null)
-                .build();
-        }
-
-        // 設定完成時間（重要：手動設定，因為已移除 @CreationTimestamp）
-        progress.setCompletedAt(java.time.LocalDateTime.now());
-
-        // 保存進度記錄
-        progressRepository.save(progress);
+        // 交易提交後更新單元完成快取
+        eventPublisher.publishEvent(new UnitCompletionChangedEvent(userId, unit.getId()));
 
         // 增加經驗值並更新等級
         Integer xpEarned = unit.getXpReward();
-        User updatedUser = xpService.addXp(userId, xpEarned);
+        UserXpLevelView updatedUser = xpService.awardUnitXp(userId, unit.getId(), xpEarned);
 
         // 建立回應
         return CompleteUnitResponseDto.builder()
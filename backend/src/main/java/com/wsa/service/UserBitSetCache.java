@@ -0,0 +1,92 @@
+package com.wsa.service;
+
+import java.util.BitSet;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * 每位使用者一個 BitSet 的快取（位元索引為課程目錄快照中的序號）
+ * 供 OwnedCourseCache（課程序號）與 UnitCompletionCache（單元序號）共用
+ *
+ * 重要：
+ *   - 快取記錄載入時的目錄版本；目錄重新載入（序號可能改變）後視為未命中
+ *   - 快取中的 BitSet 不會被修改；設定位元時以複製後的新 BitSet 替換
+ *   - 清除或設定位元時若無法套用，寫入該使用者的標記（不含 BitSet）取代原值；
+ *     查詢資料庫後只在該使用者的值仍是查詢前的同一個物件時才寫入，查詢期間的變更只影響該使用者自己的查詢
+ *   - 有存活時間：其他執行個體的變更不會通知此執行個體，最多延遲一個存活時間後生效
+ */
+final class UserBitSetCache {
+
+    private final BoundedCache<UUID, VersionedBitSet> entries;
+
+    UserBitSetCache(int maxSize, long ttlMillis) {
+        this.entries = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    /**
+     * 取得使用者的 BitSet；未命中或目錄版本不同時以 loader 查詢並寫入快取
+     *
+     * @param userId 使用者 UUID
+     * @param catalog 課程目錄快照（位元索引所依據的快照）
+     * @param loader 查詢資料庫並建立 BitSet
+     * @return BitSet（唯讀，不得修改）
+     */
+    BitSet get(UUID userId, CatalogSnapshot catalog, Supplier<BitSet> loader) {
+        VersionedBitSet cached = entries.get(userId);
+        if (cached != null && cached.bits != null && cached.catalogVersion == catalog.getVersion()) {
+            return cached.bits;
+        }
+
+        BitSet loaded = loader.get();
+        VersionedBitSet fresh = new VersionedBitSet(loaded, catalog.getVersion());
+        // 查詢期間此使用者若有清除或設定位元，值已被替換，查詢結果可能是舊的，不寫入
+        entries.compute(userId, current -> current == cached ? fresh : current);
+        return loaded;
+    }
+
+    /**
+     * 在已快取的 BitSet 中設定位元；未快取、目錄版本不同或序號無效時清除該使用者的快取
+     *
+     * @param userId 使用者 UUID
+     * @param catalog 目前的課程目錄快照
+     * @param ordinal 要設定的位元（-1 表示無效）
+     */
+    void setBit(UUID userId, CatalogSnapshot catalog, int ordinal) {
+        entries.update(userId, cached -> {
+            if (ordinal < 0 || cached == null || cached.bits == null || cached.catalogVersion != catalog.getVersion()) {
+                return VersionedBitSet.invalidated();
+            }
+            BitSet updated = (BitSet) cached.bits.clone();
+            updated.set(ordinal);
+            return new VersionedBitSet(updated, cached.catalogVersion);
+        });
+    }
+
+    /**
+     * 清除使用者的快取
+     *
+     * @param userId 使用者 UUID
+     */
+    void invalidate(UUID userId) {
+        entries.update(userId, cached -> VersionedBitSet.invalidated());
+    }
+
+    /**
+     * 快取的 BitSet 與載入時的目錄版本
+     * bits 為 null 表示已清除的標記（視為未命中；每次清除都是新的物件）
+     */
+    private static final class VersionedBitSet {
+
+        private final BitSet bits;
+        private final long catalogVersion;
+
+        private VersionedBitSet(BitSet bits, long catalogVersion) {
+            this.bits = bits;
+            this.catalogVersion = catalogVersion;
+        }
+
+        private static VersionedBitSet invalidated() {
+            return new VersionedBitSet(null, -1L);
+        }
+    }
+}
@@ -2,16 +2,19 @@ package com.wsa.service;
 
 import com.wsa.entity.Course;
 import com.wsa.entity.UserCourse;
+import com.wsa.event.UserCoursesChangedEvent;
 import com.wsa.repository.CourseRepository;
 import com.wsa.repository.UserCourseRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -25,9 +28,11 @@ public class UserCourseService {
 
     private final UserCourseRepository userCourseRepository;
     private final CourseRepository courseRepository;
+    private final OwnedCourseCache ownedCourseCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * 檢查使用者是否擁有特定課程
+     * 檢查使用者是否擁有特定課程（查詢擁有課程快取）
      *
      * @param userId   使用者 ID
      * @param courseId 課程 ID
@@ -37,7 +42,20 @@ public class UserCourseService {
         if (userId == null || courseId == null) {
             return false;
         }
-        return userCourseRepository.existsByUserIdAndCourseId(userId, courseId);
+        return ownedCourseCache.isOwned(userId, courseId);
+    }
+
+    /**
+     * 取得使用者擁有的所有課程 ID（查詢擁有課程快取）
+     *
+     * @param userId 使用者 ID（可為 null，表示未登入）
+     * @return 擁有的課程 ID 集合（未登入時為空集合）
+     */
+    public Set<UUID> getOwnedCourseIds(UUID userId) {
+        if (userId == null) {
+            return Set.of();
+        }
+        return ownedCourseCache.getOwnedCourseIds(userId);
     }
 
     /**
@@ -98,6 +116,9 @@ public class UserCourseService {
         UserCourse saved = userCourseRepository.save(userCourse);
         log.info("課程購買成功 - 記錄 ID: {}", saved.getId());
 
+        // 交易提交後清除擁有課程快取
+        eventPublisher.publishEvent(new UserCoursesChangedEvent(userId));
+
         return saved;
     }
 
@@ -2,13 +2,11 @@ package com.wsa.service;
 
 import com.wsa.entity.Unit;
 import com.wsa.entity.UserUnitProgress;
-import com.wsa.repository.UnitRepository;
 import com.wsa.repository.UserUnitProgressRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.UUID;
 
 /**
@@ -27,14 +25,20 @@ import java.util.UUID;
 public class UserProgressService {
 
     private final UserUnitProgressRepository userUnitProgressRepository;
-    private final UnitRepository unitRepository;
+    private final CatalogService catalogService;
+    private final ProgressWriteBuffer progressWriteBuffer;
+
+    /** 是否透過寫入緩衝區延後寫入觀看位置 */
+    @Value("${progress.write-behind.enabled:true}")
+    private boolean writeBehindEnabled;
 
     /**
      * 更新使用者觀看單元的最後秒數
      *
      * 行為：
-     *   1. 若進度記錄不存在，建立新記錄（completedAt = null）
-     *   2. 若進度記錄已存在，更新 lastPositionSeconds 和 lastWatchedAt
+     *   1. 啟用 write-behind（progress.write-behind.enabled）時，只將最新位置寫入 ProgressWriteBuffer，
+     *      由緩衝區定期批次寫入資料庫；停用時直接以單一 upsert 語句寫入
+     *   2. 寫入時若進度記錄不存在則建立（completedAt = null），已存在則更新 lastPositionSeconds 和 lastWatchedAt
      *   3. 不修改 completedAt 欄位（保持原值）
      *   4. 不增加 XP 或等級
      *
@@ -45,38 +49,22 @@ public class UserProgressService {
      * @param userId 使用者 UUID
      * @param unitPublicId 單元對外 ID（例如：intro-design-principles）
      * @param lastPositionSeconds 最後觀看到的秒數位置
-     * @return 更新後的進度記錄
+     * @return 記錄的觀看秒數
      * @throws RuntimeException 當找不到對應的單元時
      */
-    @Transactional
-    public UserUnitProgress updateLastPosition(UUID userId, String unitPublicId, int lastPositionSeconds) {
+    public int updateLastPosition(UUID userId, String unitPublicId, int lastPositionSeconds) {
         // 步驟 1：根據單元 ID 查詢單元資料
-        Unit unit = unitRepository.findByUnitId(unitPublicId)
+        Unit unit = catalogService.getSnapshot().findUnitByUnitId(unitPublicId)
                 .orElseThrow(() -> new RuntimeException("找不到對應的單元：" + unitPublicId));
 
-        // 步驟 2：查詢是否已有進度記錄
-        UserUnitProgress progress = userUnitProgressRepository
-                .findByUserIdAndUnitId(userId, unit.getId())
-                .orElseGet(() -> {
-                    // 若不存在，建立新的進度記錄
-                    // 注意：completedAt 保持 null，表示尚未完成
-                    UserUnitProgress newProgress = new UserUnitProgress();
-                    newProgress.setUserId(userId);
-                    newProgress.setUnitId(unit.getId());
-                    newProgress.setCompletedAt(null);  // 重要：進度記錄時不設 completedAt
-                    return newProgress;
-                });
-
-        // 步驟 3：更新最後觀看秒數與時間
-        progress.setLastPositionSeconds(lastPositionSeconds);
-        progress.setLastWatchedAt(LocalDateTime.now());
-
-        // 注意：不修改 completedAt（保持原值）
-        // - 若是新記錄，completedAt 為 null
-        // - 若是已完成的單元，completedAt 保持完成時的時間
+        // 步驟 2：記錄到緩衝區（同一單元只保留最新位置，定期批次寫入），或直接 upsert
+        if (writeBehindEnabled) {
+            progressWriteBuffer.record(userId, unit.getId(), lastPositionSeconds);
+        } else {
+            userUnitProgressRepository.upsertLastPosition(userId, unit.getId(), lastPositionSeconds);
+        }
 
-        // 步驟 4：儲存並返回
-        return userUnitProgressRepository.save(progress);
+        return lastPositionSeconds;
     }
 
     /**
@@ -2,11 +2,16 @@ package com.wsa.service;
 
 import com.wsa.dto.OAuthLoginRequest;
 import com.wsa.entity.User;
+import com.wsa.event.UnitCompletionChangedEvent;
+import com.wsa.event.UserCoursesChangedEvent;
+import com.wsa.event.UserXpChangedEvent;
 import com.wsa.repository.UserRepository;
 import com.wsa.repository.UserUnitProgressRepository;
 import com.wsa.repository.UserCourseRepository;
+import com.wsa.repository.XpEventRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,6 +35,15 @@ public class UserService {
     @Autowired
     private UserCourseRepository userCourseRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProgressWriteBuffer progressWriteBuffer;
+
+    @Autowired
+    private XpEventRepository xpEventRepository;
+
     /**
      * 建立新使用者或更新現有使用者資料
      * 根據 OAuth 提供者和外部 ID 判斷使用者是否已存在：
@@ -66,8 +80,14 @@ public class UserService {
                     .level(1)      // 新使用者初始等級為 1
                     .totalXp(0)    // 新使用者初始總經驗值為 0
                     .weeklyXp(0)   // 新使用者初始本週經驗值為 0
+                    .weeklyXpWeek(WeekNumber.current())
                     .build();
-            return userRepository.save(newUser);
+            User saved = userRepository.save(newUser);
+
+            // 新使用者加入排行榜排名索引
+            eventPublisher.publishEvent(new UserXpChangedEvent(
+                    saved.getId(), 0, 0, saved.getWeeklyXpWeek(), saved.getXpVersion()));
+            return saved;
         }
     }
 
@@ -93,27 +113,42 @@ public class UserService {
      */
     @Transactional
     public User resetUserData(UUID userId) {
-        // 步驟 1：查詢使用者
-        User user = userRepository.findById(userId)
+        // 步驟 1：查詢並鎖定使用者
+        // 先鎖定使用者列：套用經驗值事件的消費者鎖定同一列，重置期間不會套用事件，
+        // 重置後讀到的經驗值版本也不會被消費者的更新覆蓋
+        User user = userRepository.findByIdForUpdate(userId)
                 .orElseThrow(() -> new RuntimeException("找不到使用者：" + userId));
 
         // 步驟 2：清除所有課程觀看進度
-        // 刪除該使用者的所有 user_unit_progress 記錄
+        // 先捨棄緩衝區中尚未寫入的觀看位置，再刪除該使用者的所有 user_unit_progress 記錄
+        progressWriteBuffer.discardUser(userId);
         userUnitProgressRepository.deleteByUserId(userId);
+        eventPublisher.publishEvent(new UnitCompletionChangedEvent(userId, null));
         log.info("[UserService] 已清除使用者 {} 的所有課程觀看進度", userId);
 
         // 步驟 3：清除所有課程訂單
         // 刪除該使用者的所有 user_courses 記錄
         userCourseRepository.deleteByUserId(userId);
+        eventPublisher.publishEvent(new UserCoursesChangedEvent(userId));
         log.info("[UserService] 已清除使用者 {} 的所有課程訂單", userId);
 
         // 步驟 4：重置經驗值和等級
+        // 記錄重置時間：消費者已取出但尚未提交的事件無法在此刪除，套用時依重置時間捨棄
+        userRepository.markXpReset(userId);
+        xpEventRepository.deleteByUserId(userId);
         user.setTotalXp(0);
         user.setWeeklyXp(0);
+        user.setWeeklyXpWeek(WeekNumber.current());
+        userRepository.deleteWeeklyXp(userId, user.getWeeklyXpWeek());
         user.setLevel(1);
+        user.setXpVersion(user.getXpVersion() + 1);
         log.info("[UserService] 已重置使用者 {} 的經驗值和等級", userId);
 
         // 步驟 5：保存更新後的使用者資料
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+
+        // 步驟 6：交易提交後更新排行榜排名索引
+        eventPublisher.publishEvent(new UserXpChangedEvent(userId, 0, 0, saved.getWeeklyXpWeek(), saved.getXpVersion()));
+        return saved;
     }
 }
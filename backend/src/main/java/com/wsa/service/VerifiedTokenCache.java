@@ -0,0 +1,111 @@
+package com.wsa.service;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已驗證 JWT token 快取
+ * 前端在 token 有效期間（最長 24 小時）每次請求都帶同一個 token，
+ * 快取驗證結果後，重複的請求不需要再做 HS256 簽章驗證與 JSON 解析
+ *
+ * 重要：
+ *   - 以 token 的 SHA-256 雜湊作為 key，不在記憶體中保存原始 token
+ *   - 依筆數（最久未使用）與時間淘汰；快取到期時間不會超過 token 本身的 exp
+ *   - 讀取不加鎖（BoundedCache），驗證路徑上沒有全域鎖
+ *   - 命中、未命中與淘汰次數透過 Micrometer 指標（jwt.token.cache.*）公開
+ */
+@Service
+public class VerifiedTokenCache {
+
+    private final JwtService jwtService;
+
+    /** token 雜湊 → 驗證結果（讀取不加鎖；依筆數與時間淘汰） */
+    private final BoundedCache<String, UUID> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VerifiedTokenCache(JwtService jwtService,
+                              MeterRegistry meterRegistry,
+                              @Value("${jwt.cache.max-size:10000}") int maxSize,
+                              @Value("${jwt.cache.ttl-ms:600000}") long ttlMillis) {
+        this.jwtService = jwtService;
+        this.entries = new BoundedCache<>(maxSize, ttlMillis);
+
+        FunctionCounter.builder("jwt.token.cache.hits", hits, LongAdder::sum)
+            .description("已驗證 token 快取命中次數")
+            .register(meterRegistry);
+        FunctionCounter.builder("jwt.token.cache.misses", misses, LongAdder::sum)
+            .description("已驗證 token 快取未命中次數")
+            .register(meterRegistry);
+        FunctionCounter.builder("jwt.token.cache.evictions", entries, BoundedCache::evictionCount)
+            .description("已驗證 token 快取淘汰次數（筆數上限或到期）")
+            .register(meterRegistry);
+        Gauge.builder("jwt.token.cache.size", this, VerifiedTokenCache::size)
+            .description("已驗證 token 快取目前筆數")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 驗證 JWT token 並取得使用者 ID
+     * 快取命中時直接回傳；未命中時完整驗證一次並寫入快取（只快取有效的 token）
+     *
+     * @param token JWT token 字串
+     * @return 使用者唯一識別碼（token 無效時為 empty）
+     */
+    public Optional<UUID> resolveUserId(String token) {
+        String key = hash(token);
+        UUID cached = entries.get(key);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+
+        misses.increment();
+        Optional<Claims> claims = jwtService.parseClaims(token);
+        Optional<UUID> userId = claims.flatMap(jwtService::getUserId);
+        if (userId.isPresent()) {
+            // 快取到期時間不超過 token 本身的 exp
+            Date tokenExpiration = claims.get().getExpiration();
+            long expiresAt = tokenExpiration != null ? tokenExpiration.getTime() : Long.MAX_VALUE;
+            entries.put(key, userId.get(), expiresAt);
+        }
+        return userId;
+    }
+
+    /**
+     * 取得目前快取筆數
+     *
+     * @return 快取筆數
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 計算 token 的 SHA-256 雜湊
+     */
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hashed = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hashed);
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 Java 平台都必須支援 SHA-256
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
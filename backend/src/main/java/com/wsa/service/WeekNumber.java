@@ -0,0 +1,43 @@
+package com.wsa.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * 週次（weekly epoch）計算工具
+ * 將日期換算為「自 1970-01-05（星期一）起算的第幾週」，每週一 00:00（台北時間）換週
+ *
+ * 用途：
+ *   - users.weekly_xp_week 記錄 weekly_xp 所屬的週次
+ *   - 週次與目前週次不同時，weekly_xp 一律視為 0，換週時不需要改寫任何資料
+ */
+public final class WeekNumber {
+
+    /** 換週所依據的時區 */
+    public static final ZoneId ZONE = ZoneId.of("Asia/Taipei");
+
+    /** 1970-01-05 為 epoch day 4，也是 1970 年的第一個星期一 */
+    private static final long FIRST_MONDAY_EPOCH_DAY = 4;
+
+    private WeekNumber() {
+    }
+
+    /**
+     * 取得目前的週次
+     *
+     * @return 目前週次
+     */
+    public static int current() {
+        return of(LocalDate.now(ZONE));
+    }
+
+    /**
+     * 取得指定日期所屬的週次
+     *
+     * @param date 日期
+     * @return 週次
+     */
+    public static int of(LocalDate date) {
+        return (int) Math.floorDiv(date.toEpochDay() - FIRST_MONDAY_EPOCH_DAY, 7);
+    }
+}
@@ -0,0 +1,115 @@
+package com.wsa.service;
+
+import com.wsa.repository.UserRepository;
+import com.wsa.repository.XpEventRepository;
+import com.wsa.repository.projection.WeeklySnapshotCursorView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 每週排行榜快照服務
+ * 每週結束後，將上週排行榜前 N 名分批寫入 weekly_leaderboard_snapshots
+ *
+ * 重要：
+ *   - 換週本身不需要任何寫入（weekly_xp_week 不符即視為 0），此工作只負責保存歷史
+ *   - 快照來源為 user_weekly_xp（以週次為鍵），不受使用者在新的一週取得經驗值影響；
+ *     上週尚有未套用的 xp_events 時延到下次排程，確保上週的資料已不再變更
+ *   - 每批只寫入少量資料，各自為獨立的短交易，以 keyset 續寫，不會長時間鎖住資料表
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WeeklyLeaderboardArchiver {
+
+    /** keyset 起點之前的使用者 ID（所有 UUID 都大於等於此值） */
+    private static final UUID MIN_USER_ID = new UUID(0L, 0L);
+
+    /** 清除舊週次每週經驗值時每批刪除的筆數 */
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final UserRepository userRepository;
+
+    private final XpEventRepository xpEventRepository;
+
+    /** 每週保存的名次數 */
+    @Value("${leaderboard.weekly.snapshot-top-n:100}")
+    private int topN;
+
+    /** 每批寫入的筆數 */
+    @Value("${leaderboard.weekly.snapshot-batch-size:20}")
+    private int batchSize;
+
+    /** 最近一次已完成快照的週次（避免每次排程都重新檢查） */
+    private volatile int lastArchivedWeek = Integer.MIN_VALUE;
+
+    /**
+     * 定期檢查上週是否已寫入快照，未完成則分批補寫
+     */
+    @Scheduled(cron = "${leaderboard.weekly.snapshot-cron:0 */5 * * * *}", zone = "Asia/Taipei")
+    public void archivePreviousWeek() {
+        int previousWeek = WeekNumber.current() - 1;
+        if (lastArchivedWeek == previousWeek) {
+            return;
+        }
+        if (xpEventRepository.hasPendingEvents(previousWeek)) {
+            log.info("[WeeklyLeaderboardArchiver] 第 {} 週尚有未套用的經驗值事件，延到下次排程", previousWeek);
+            return;
+        }
+
+        archiveWeek(previousWeek);
+        purgeWeeksBefore(previousWeek);
+        lastArchivedWeek = previousWeek;
+    }
+
+    /**
+     * 將指定週次的前 N 名分批寫入快照表
+     * 可重複呼叫：從已寫入快照的最後一筆之後繼續
+     *
+     * @param week 週次
+     * @return 本次寫入的筆數
+     */
+    public int archiveWeek(int week) {
+        int written = (int) userRepository.countWeeklySnapshots(week);
+        Optional<WeeklySnapshotCursorView> last = userRepository.findLastWeeklySnapshot(week);
+        int afterXp = last.map(WeeklySnapshotCursorView::getWeeklyXp).orElse(Integer.MAX_VALUE);
+        UUID afterUserId = last.map(WeeklySnapshotCursorView::getUserId).orElse(MIN_USER_ID);
+        int archived = 0;
+
+        while (written < topN) {
+            int size = Math.min(batchSize, topN - written);
+            int inserted = userRepository.archiveWeeklyLeaderboardBatch(week, afterXp, afterUserId, size);
+            if (inserted == 0) {
+                break;
+            }
+            written += inserted;
+            archived += inserted;
+
+            WeeklySnapshotCursorView cursor = userRepository.findLastWeeklySnapshot(week).orElseThrow();
+            afterXp = cursor.getWeeklyXp();
+            afterUserId = cursor.getUserId();
+        }
+
+        if (archived > 0) {
+            log.info("[WeeklyLeaderboardArchiver] 已寫入第 {} 週排行榜快照 {} 筆", week, archived);
+        }
+        return archived;
+    }
+
+    /**
+     * 分批刪除早於指定週次的每週經驗值（已寫入快照，不再需要）
+     *
+     * @param week 週次（不含）
+     */
+    private void purgeWeeksBefore(int week) {
+        int deleted;
+        do {
+            deleted = userRepository.deleteWeeklyXpBefore(week, PURGE_BATCH_SIZE);
+        } while (deleted > 0);
+    }
+}
@@ -0,0 +1,55 @@
+package com.wsa.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * 經驗值事件消費排程
+ * 定期將 xp_events 中尚未套用的事件分批套用到 users（只在 xp.pipeline.mode=async 時執行）
+ *
+ * 注意：每次排程最多處理 MAX_BATCHES_PER_RUN 批，避免長時間佔用排程執行緒
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class XpEventConsumer {
+
+    /** 每次排程最多處理的批數 */
+    private static final int MAX_BATCHES_PER_RUN = 10;
+
+    private final XpService xpService;
+
+    /** 每批最多取出的事件數 */
+    @Value("${xp.pipeline.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 定期套用經驗值事件
+     */
+    @Scheduled(fixedDelayString = "${xp.pipeline.poll-interval-ms:1000}")
+    public void applyPendingEvents() {
+        if (!xpService.isAsyncPipeline()) {
+            return;
+        }
+
+        try {
+            int total = 0;
+            for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+                int applied = xpService.applyPendingEvents(batchSize);
+                total += applied;
+                if (applied < batchSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.debug("[XpEventConsumer] 已套用 {} 筆經驗值事件", total);
+            }
+        } catch (DataAccessException e) {
+            log.warn("[XpEventConsumer] 套用經驗值事件失敗，將於下次排程重試", e);
+        }
+    }
+}
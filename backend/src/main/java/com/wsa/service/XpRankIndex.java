@@ -0,0 +1,156 @@
+package com.wsa.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 經驗值排名索引（Fenwick Tree / Binary Indexed Tree）
+ * 以「經驗值」作為桶（bucket），每個桶記錄擁有該經驗值的使用者人數
+ *
+ * 用途：
+ *   - 排名 = 經驗值比自己高的人數 + 1，等同於 countByTotalXpGreaterThan + 1
+ *   - 查詢與更新皆為 O(log maxXp)，不需要掃描 users 資料表
+ *
+ * 注意：
+ *   - 容量不足時以 2 的次方倍數擴充並重建
+ *   - 使用讀寫鎖保護，讀取（排名查詢）可並行
+ */
+class XpRankIndex {
+
+    /** 初始容量（涵蓋等級表最高門檻 65000） */
+    private static final int INITIAL_CAPACITY = 1 << 17;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 每位使用者目前在索引中的經驗值 */
+    private final Map<UUID, Integer> xpByUser = new HashMap<>();
+
+    /** Fenwick tree（1-based），索引 i 對應經驗值 i - 1 */
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+
+    /**
+     * 以完整資料重建索引（啟動預熱時使用）
+     *
+     * @param snapshot 使用者 ID 與經驗值的對照表
+     */
+    void rebuild(Map<UUID, Integer> snapshot) {
+        lock.writeLock().lock();
+        try {
+            xpByUser.clear();
+            int maxXp = snapshot.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+            tree = new int[capacityFor(maxXp) + 1];
+            snapshot.forEach((userId, xp) -> {
+                int normalized = Math.max(xp, 0);
+                xpByUser.put(userId, normalized);
+                add(normalized, 1);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 更新使用者的經驗值（不存在時新增）
+     *
+     * @param userId 使用者 UUID
+     * @param xp 更新後的經驗值
+     */
+    void update(UUID userId, int xp) {
+        int normalized = Math.max(xp, 0);
+        lock.writeLock().lock();
+        try {
+            Integer previous = xpByUser.put(userId, normalized);
+            if (previous != null && previous == normalized) {
+                return;
+            }
+            if (normalized >= tree.length - 1) {
+                // 容量不足：擴充後依 xpByUser（已包含新值）重建
+                grow(normalized);
+                return;
+            }
+            if (previous != null) {
+                add(previous, -1);
+            }
+            add(normalized, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 計算經驗值大於指定值的使用者人數
+     *
+     * @param xp 經驗值
+     * @return 使用者人數
+     */
+    long countGreaterThan(int xp) {
+        lock.readLock().lock();
+        try {
+            if (xp < 0) {
+                return xpByUser.size();
+            }
+            int capacity = tree.length - 1;
+            if (xp >= capacity) {
+                return 0;
+            }
+            return xpByUser.size() - prefixSum(xp);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 取得索引中的使用者總數
+     *
+     * @return 使用者總數
+     */
+    long size() {
+        lock.readLock().lock();
+        try {
+            return xpByUser.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 計算經驗值 <= xp 的使用者人數
+     */
+    private int prefixSum(int xp) {
+        int sum = 0;
+        for (int i = xp + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 在經驗值 xp 的桶中加上 delta
+     */
+    private void add(int xp, int delta) {
+        for (int i = xp + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * 擴充容量以容納指定經驗值，並依目前所有使用者的經驗值重建 tree
+     */
+    private void grow(int xp) {
+        tree = new int[capacityFor(xp) + 1];
+        xpByUser.values().forEach(value -> add(value, 1));
+    }
+
+    /**
+     * 計算可容納指定經驗值的容量（2 的次方）
+     */
+    private static int capacityFor(int maxXp) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity <= maxXp) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -1,26 +1,48 @@
 package com.wsa.service;
 
-import com.wsa.entity.User;
+import com.wsa.event.UserXpChangedEvent;
 import com.wsa.repository.UserRepository;
+import com.wsa.repository.XpEventRepository;
+import com.wsa.repository.XpEventRepository.XpEvent;
+import com.wsa.repository.projection.UserXpLevelView;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * 經驗值與等級服務
  * 處理使用者經驗值的增加與等級計算
+ *
+ * 經驗值套用方式（xp.pipeline.mode）：
+ *   - async（預設）：完成單元時只在同一交易中新增 xp_events 事件，不更新 users；
+ *     由 XpEventConsumer 定期批次套用，排行榜與等級在數秒內一致
+ *   - sync：完成單元時直接以單一 UPDATE 更新 users（測試或需要立即一致時使用）
  */
 @Service
 @RequiredArgsConstructor
 public class XpService {
 
     private final UserRepository userRepository;
+    private final XpEventRepository xpEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** 經驗值套用方式：sync 或 async */
+    @Value("${xp.pipeline.mode:async}")
+    private String pipelineMode;
 
     /**
      * 等級表：定義每個等級所需的累積經驗值
      * 根據規格書的等級表實作
+     * 注意：資料庫 xp_levels 表（V14）內容與此相同，修改時需一併新增 migration
      */
     private static final int[] LEVEL_THRESHOLDS = {
         0,      // Level 1
@@ -64,24 +86,103 @@ public class XpService {
     /**
      * 為使用者增加經驗值並更新等級
      *
+     * 重要：
+     *   - 以單一 UPDATE ... RETURNING 語句完成（不需先查詢或明確加鎖），並行呼叫不會遺失更新
+     *   - 新等級由資料庫的 xp_levels 門檻表計算
+     *
+     * @param userId 使用者 UUID
+     * @param xpAmount 要增加的經驗值數量
+     * @return 更新後的經驗值與等級
+     */
+    @Transactional
+    public UserXpLevelView addXp(UUID userId, int xpAmount) {
+        // 若 weeklyXp 屬於過去的週次，視為 0 重新累計（換週不需要批次重置）
+        UserXpLevelView updated = userRepository.incrementXp(userId, xpAmount, WeekNumber.current())
+            .orElseThrow(() -> new RuntimeException("找不到使用者"));
+
+        // 交易提交後更新排行榜排名索引
+        eventPublisher.publishEvent(new UserXpChangedEvent(
+            updated.getId(), updated.getTotalXp(), updated.getWeeklyXp(), updated.getWeeklyXpWeek(),
+            updated.getXpVersion()));
+
+        return updated;
+    }
+
+    /**
+     * 完成單元時給予經驗值
+     * async 模式只新增事件並回傳預估值（目前經驗值加上所有尚未套用的事件），不鎖定 users 列；
+     * sync 模式與 addXp 相同
+     *
      * @param userId 使用者 UUID
+     * @param unitId 來源單元 UUID
      * @param xpAmount 要增加的經驗值數量
-     * @return 更新後的使用者資料
+     * @return 套用後的經驗值與等級（async 模式為預估值）
      */
     @Transactional
-    public User addXp(UUID userId, int xpAmount) {
-        User user = userRepository.findById(userId)
+    public UserXpLevelView awardUnitXp(UUID userId, UUID unitId, int xpAmount) {
+        if (!isAsyncPipeline()) {
+            return addXp(userId, xpAmount);
+        }
+
+        int week = WeekNumber.current();
+        xpEventRepository.insert(userId, unitId, xpAmount, week);
+        return xpEventRepository.findProjectedXp(userId, week)
             .orElseThrow(() -> new RuntimeException("找不到使用者"));
+    }
 
-        // 增加總經驗值和本週經驗值
-        user.setTotalXp(user.getTotalXp() + xpAmount);
-        user.setWeeklyXp(user.getWeeklyXp() + xpAmount);
+    /**
+     * 取出一批經驗值事件並套用到 users
+     * 同一使用者、同一週次的事件合併為一次 UPDATE
+     *
+     * 注意：先依使用者 UUID 順序鎖定本批所有使用者列，所有消費者的鎖定順序相同，批次跨週時也不會互相死結；
+     * 建立時間不晚於使用者重置時間的事件直接捨棄（重置時已被本交易取出而無法刪除的事件）
+     *
+     * @param batchSize 本批最多取出的事件數
+     * @return 本批取出的事件數
+     */
+    @Transactional
+    public int applyPendingEvents(int batchSize) {
+        List<XpEvent> events = xpEventRepository.claimBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Map<UUID, LocalDateTime> resetAt = xpEventRepository.lockUsers(
+            events.stream().map(XpEvent::getUserId).collect(Collectors.toSet()));
+
+        // 使用者 → 週次 → 合計經驗值
+        Map<UUID, Map<Integer, Integer>> merged = new TreeMap<>();
+        for (XpEvent event : events) {
+            if (!resetAt.containsKey(event.getUserId())) {
+                // 使用者已刪除
+                continue;
+            }
+            LocalDateTime userResetAt = resetAt.get(event.getUserId());
+            if (userResetAt != null && !event.getCreatedAt().isAfter(userResetAt)) {
+                // 重置前建立的事件
+                continue;
+            }
+            merged.computeIfAbsent(event.getUserId(), userId -> new TreeMap<>())
+                .merge(event.getWeek(), event.getXpAmount(), Integer::sum);
+        }
+
+        merged.forEach((userId, xpByWeek) -> xpByWeek.forEach((week, xp) ->
+            userRepository.incrementXp(userId, xp, week).ifPresent(updated ->
+                // 交易提交後更新排行榜排名索引
+                eventPublisher.publishEvent(new UserXpChangedEvent(
+                    updated.getId(), updated.getTotalXp(), updated.getWeeklyXp(), updated.getWeeklyXpWeek(),
+                    updated.getXpVersion())))));
 
-        // 根據新的總經驗值計算等級
-        int newLevel = calculateLevel(user.getTotalXp());
-        user.setLevel(newLevel);
+        return events.size();
+    }
 
-        return userRepository.save(user);
+    /**
+     * 是否以 xp_events 非同步套用經驗值
+     *
+     * @return true 表示 async 模式
+     */
+    public boolean isAsyncPipeline() {
+        return !"sync".equalsIgnoreCase(pipelineMode);
     }
 
     /**
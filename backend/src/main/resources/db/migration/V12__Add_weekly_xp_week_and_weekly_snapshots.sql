@@ -0,0 +1,35 @@
+-- ============================================================
+-- V12: 本週經驗值週次（weekly epoch）與每週排行榜快照
+--
+-- 目的：
+-- 1. 在 weekly_xp 旁記錄其所屬週次，週次不符時視為 0
+--    → 換週不需要 UPDATE users SET weekly_xp = 0（避免鎖住整張表）
+-- 2. 每週結束後，由背景工作將該週前 N 名分批寫入快照表
+--
+-- 週次定義：自 1970-01-05（星期一）起算的第幾週，以台北時間換週
+-- （與 com.wsa.entity.WeekNumber 相同）
+-- ============================================================
+
+-- 步驟 1：新增 weekly_xp_week 欄位，既有資料視為本週
+ALTER TABLE users
+  ADD COLUMN weekly_xp_week INTEGER NOT NULL DEFAULT 0;
+
+UPDATE users
+  SET weekly_xp_week = ((CURRENT_TIMESTAMP AT TIME ZONE 'Asia/Taipei')::date - DATE '1970-01-05') / 7
+  WHERE weekly_xp > 0;
+
+-- 本週排行榜的索引（依週次過濾）建立於 V13 的 idx_users_weekly_xp_keyset
+
+-- 步驟 2：每週排行榜快照
+CREATE TABLE weekly_leaderboard_snapshots (
+  week INTEGER NOT NULL,                                          -- 週次
+  rank INTEGER NOT NULL,                                          -- 該週排名
+  user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,   -- 使用者 ID
+  weekly_xp INTEGER NOT NULL,                                     -- 該週經驗值
+  created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+  PRIMARY KEY (week, user_id)
+);
+
+CREATE INDEX idx_weekly_leaderboard_snapshots_week_rank ON weekly_leaderboard_snapshots(week, rank);
+
+COMMENT ON TABLE weekly_leaderboard_snapshots IS '每週排行榜快照，保存每週結束時的前 N 名';
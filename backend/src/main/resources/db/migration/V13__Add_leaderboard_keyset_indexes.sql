@@ -0,0 +1,13 @@
+-- ============================================================
+-- V13: 排行榜 keyset（seek）分頁索引
+--
+-- 排行榜排序鍵：(經驗值 DESC, created_at ASC, id)
+-- 索引順序與排序鍵完全一致，下一頁可直接從游標位置往後讀取，
+-- 不需要像 OFFSET 一樣掃描並丟棄前面所有資料
+-- ============================================================
+
+-- 總經驗值排行榜
+CREATE INDEX idx_users_total_xp_keyset ON users(total_xp DESC, created_at ASC, id);
+
+-- 本週經驗值排行榜（只包含 weekly_xp > 0 的使用者，並依週次過濾）
+CREATE INDEX idx_users_weekly_xp_keyset ON users(weekly_xp_week, weekly_xp DESC, created_at ASC, id) WHERE weekly_xp > 0;
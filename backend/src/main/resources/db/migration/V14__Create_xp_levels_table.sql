@@ -0,0 +1,49 @@
+-- ============================================================
+-- V14: 等級門檻表
+--
+-- 內容與 XpService.LEVEL_THRESHOLDS 相同（兩邊需同步修改）
+-- 用途：增加經驗值時以單一 UPDATE 語句在資料庫中計算新等級
+-- ============================================================
+
+CREATE TABLE xp_levels (
+  level INTEGER PRIMARY KEY,        -- 等級（1-36）
+  min_xp INTEGER NOT NULL UNIQUE    -- 達到此等級所需的累積經驗值
+);
+
+INSERT INTO xp_levels (level, min_xp) VALUES
+  (1, 0),
+  (2, 200),
+  (3, 500),
+  (4, 1500),
+  (5, 3000),
+  (6, 5000),
+  (7, 7000),
+  (8, 9000),
+  (9, 11000),
+  (10, 13000),
+  (11, 15000),
+  (12, 17000),
+  (13, 19000),
+  (14, 21000),
+  (15, 23000),
+  (16, 25000),
+  (17, 27000),
+  (18, 29000),
+  (19, 31000),
+  (20, 33000),
+  (21, 35000),
+  (22, 37000),
+  (23, 39000),
+  (24, 41000),
+  (25, 43000),
+  (26, 45000),
+  (27, 47000),
+  (28, 49000),
+  (29, 51000),
+  (30, 53000),
+  (31, 55000),
+  (32, 57000),
+  (33, 59000),
+  (34, 61000),
+  (35, 63000),
+  (36, 65000);
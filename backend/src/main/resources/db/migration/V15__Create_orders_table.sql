@@ -0,0 +1,38 @@
+-- ============================================================
+-- V15: 訂單資料表與索引
+--
+-- 在此之前沒有任何 migration 建立 orders 表：
+--   - heroku profile（ddl-auto=update）由 Hibernate 在 Flyway 之後依 Order 實體建立
+--   - 預設 profile（ddl-auto=validate）不會建立，全新資料庫啟動時驗證失敗
+-- 因此改由此 migration 建立表與索引
+--
+-- 欄位型別依 Order 實體各欄位的 Java 型別，採 Hibernate 對應 PostgreSQL 的預設型別，
+-- 與 ddl-auto=update 建立的表相同（validate 比對欄位型別，不比對長度與 NOT NULL）：
+--   String（orderNo、memo）與 @Enumerated(STRING) 的 Order.Status → VARCHAR(255)
+--   Integer（amount，來自 Course.priceTwd）→ INTEGER
+--   LocalDateTime → TIMESTAMP(6)；UUID → UUID
+-- 已由 Hibernate 建立過 orders 表的資料庫：CREATE TABLE IF NOT EXISTS 不會變更既有的表
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS orders (
+  id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+  order_no VARCHAR(255) NOT NULL UNIQUE,                          -- 訂單編號（OrderNoGenerator 產生）
+  user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,   -- 使用者 ID（外鍵）
+  course_id UUID NOT NULL REFERENCES courses(id),                 -- 課程 ID（外鍵）
+  amount INTEGER NOT NULL,                                        -- 訂單金額（新台幣）
+  status VARCHAR(255) NOT NULL
+    CHECK (status IN ('PENDING', 'PAID', 'CANCELLED')),           -- Order.Status 名稱
+  pay_deadline TIMESTAMP(6) NOT NULL,                             -- 付款期限
+  paid_at TIMESTAMP(6),                                           -- 付款時間
+  memo VARCHAR(255),                                              -- 備註（例如取消原因）
+  created_at TIMESTAMP(6) NOT NULL DEFAULT NOW(),
+  updated_at TIMESTAMP(6) NOT NULL DEFAULT NOW()
+);
+
+-- 使用者訂單列表（keyset 分頁排序鍵：created_at DESC, id DESC）
+CREATE INDEX IF NOT EXISTS idx_orders_user_created ON orders(user_id, created_at DESC, id DESC);
+
+-- 過期訂單取消排程：只索引待付款訂單，索引大小與查詢成本不隨歷史訂單數量增加
+CREATE INDEX IF NOT EXISTS idx_orders_pending_pay_deadline ON orders(pay_deadline) WHERE status = 'PENDING';
+
+COMMENT ON TABLE orders IS '課程訂單';
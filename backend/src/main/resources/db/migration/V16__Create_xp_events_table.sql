@@ -0,0 +1,21 @@
+-- ============================================================
+-- V16: 經驗值事件表（transactional outbox）
+--
+-- 完成單元時在同一交易中新增一筆事件，不直接更新 users；
+-- 由背景排程（XpEventConsumer）批次取出事件，同一使用者、同一週次的事件合併為一次 UPDATE
+-- 事件套用後即刪除，因此此表只保存尚未套用的事件
+-- ============================================================
+
+CREATE TABLE xp_events (
+  id BIGSERIAL PRIMARY KEY,                                       -- 事件序號（依序套用）
+  user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,   -- 使用者 ID（外鍵）
+  unit_id UUID REFERENCES units(id) ON DELETE SET NULL,           -- 來源單元 ID（外鍵）
+  xp_amount INTEGER NOT NULL,                                     -- 增加的經驗值
+  week INTEGER NOT NULL,                                          -- 事件發生時的週次（計算本週經驗值）
+  created_at TIMESTAMP NOT NULL DEFAULT NOW()                     -- 事件建立時間
+);
+
+-- 計算使用者尚未套用的經驗值（完成單元時回傳預估值）與重置使用者資料時使用
+CREATE INDEX idx_xp_events_user_id ON xp_events(user_id);
+
+COMMENT ON TABLE xp_events IS '尚未套用到 users 的經驗值事件（transactional outbox）';
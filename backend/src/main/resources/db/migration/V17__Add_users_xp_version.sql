@@ -0,0 +1,12 @@
+-- ============================================================
+-- V17: 使用者經驗值版本（xp_version）
+--
+-- 每次寫入 total_xp / weekly_xp（增加經驗值、重置）時加 1，
+-- 排行榜排名索引（LeaderboardRankIndex）以此判斷經驗值變更事件的先後：
+-- 同一使用者的兩個交易提交後事件順序可能顛倒，版本較舊的事件不套用
+-- ============================================================
+
+ALTER TABLE users
+  ADD COLUMN xp_version BIGINT NOT NULL DEFAULT 0;
+
+COMMENT ON COLUMN users.xp_version IS '經驗值版本（每次寫入經驗值時加 1）';
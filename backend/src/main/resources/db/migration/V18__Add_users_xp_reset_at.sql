@@ -0,0 +1,12 @@
+-- ============================================================
+-- V18: 使用者經驗值重置時間（xp_reset_at）
+--
+-- 重置使用者資料時記錄重置時間（clock_timestamp()），
+-- XpEventConsumer 套用事件時捨棄建立時間不晚於重置時間的 xp_events：
+-- 消費者可能已在自己的交易中取出（DELETE ... RETURNING）這些事件，重置無法刪除，只能由消費者捨棄
+-- ============================================================
+
+ALTER TABLE users
+  ADD COLUMN xp_reset_at TIMESTAMP;
+
+COMMENT ON COLUMN users.xp_reset_at IS '經驗值重置時間（早於此時間建立的 xp_events 不套用）';
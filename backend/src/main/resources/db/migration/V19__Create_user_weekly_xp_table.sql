@@ -0,0 +1,27 @@
+-- ============================================================
+-- V19: 每位使用者每週的經驗值（user_weekly_xp）
+--
+-- 目的：
+-- users.weekly_xp 只保存最近一週，使用者在新的一週取得經驗值時會覆寫上週的值，
+-- 換週後才執行的排行榜快照因此讀不到這些使用者的上週經驗值。
+-- 改以週次為鍵保存每週經驗值（與 users 在同一個語句中累加，見 UserRepository.incrementXp），
+-- 上週的資料在換週後不再變更，快照可從中分批（keyset）讀取
+-- ============================================================
+
+CREATE TABLE user_weekly_xp (
+  week INTEGER NOT NULL,                                          -- 週次（參考 WeekNumber）
+  user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,   -- 使用者 ID
+  weekly_xp INTEGER NOT NULL,                                     -- 該週經驗值
+  PRIMARY KEY (week, user_id)
+);
+
+-- 每週排行榜快照：依週次、經驗值降序、使用者 ID 分批讀取
+CREATE INDEX idx_user_weekly_xp_week_xp ON user_weekly_xp(week, weekly_xp DESC, user_id);
+
+-- 既有資料：users 中目前保存的週次與經驗值
+INSERT INTO user_weekly_xp (week, user_id, weekly_xp)
+SELECT weekly_xp_week, id, weekly_xp
+FROM users
+WHERE weekly_xp > 0;
+
+COMMENT ON TABLE user_weekly_xp IS '每位使用者每週的經驗值（每週排行榜快照來源）';
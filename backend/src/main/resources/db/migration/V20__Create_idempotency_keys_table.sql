@@ -0,0 +1,22 @@
+-- ============================================================
+-- V20: 冪等鍵（Idempotency-Key）資料表
+--
+-- 冪等鍵原本只保存在各執行個體的記憶體中，重試的請求送到其他執行個體時會重複執行。
+-- 改為保存在資料庫：
+--   - 第一次請求以 INSERT ... ON CONFLICT 取得冪等鍵（response 為 NULL 表示執行中），
+--     執行中的租約（expires_at）到期後可由其他請求接手
+--   - 執行完成後寫入回應（JSONB），到期後由排程清除
+-- ============================================================
+
+CREATE TABLE idempotency_keys (
+  scope_key VARCHAR(255) PRIMARY KEY,   -- 操作類型:使用者 ID:冪等鍵
+  fingerprint VARCHAR(255) NOT NULL,    -- 請求內容摘要
+  response JSONB,                       -- 執行結果（執行中為 NULL）
+  expires_at TIMESTAMP NOT NULL,        -- 到期時間（執行中為租約到期時間）
+  created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- 過期冪等鍵清除排程
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys(expires_at);
+
+COMMENT ON TABLE idempotency_keys IS '冪等鍵與第一次執行的結果';
@@ -0,0 +1,79 @@
+package com.wsa.repository;
+
+import com.wsa.entity.UserUnitProgress;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JDBC 批次寫入測試
+ * 以 application.yml 的 hibernate.jdbc.batch_size（50）驗證 saveAll 大量新增時以批次送出，
+ * 而不是每筆一個 INSERT 語句
+ */
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class UserUnitProgressBatchInsertTest {
+
+    private static final int ROWS = 10_000;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserUnitProgressRepository progressRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("saveAll 新增 1 萬筆進度時，INSERT 語句數約為 1 萬 / 50，而不是 1 萬")
+    void saveAllIsSentInJdbcBatches() {
+        UUID userId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        List<UserUnitProgress> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(UserUnitProgress.builder()
+                .userId(userId)
+                .unitId(UUID.randomUUID())
+                .lastPositionSeconds(i)
+                .lastWatchedAt(now)
+                .build());
+        }
+
+        progressRepository.saveAll(rows);
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(ROWS);
+        // 每批重新準備一次語句（或整個 flush 共用一個），不會逐筆準備
+        assertThat(statistics.getPrepareStatementCount()).isBetween(1L, (long) ROWS / BATCH_SIZE + 1);
+
+        entityManager.clear();
+        assertThat(progressRepository.count()).isEqualTo(ROWS);
+    }
+}
@@ -0,0 +1,186 @@
+package com.wsa.service;
+
+import com.wsa.dto.CourseDetailResponseDto;
+import com.wsa.dto.SectionDto;
+import com.wsa.dto.UnitSummaryDto;
+import com.wsa.entity.Course;
+import com.wsa.entity.Unit;
+import com.wsa.entity.UserCourse;
+import com.wsa.entity.UserUnitProgress;
+import com.wsa.repository.CourseRepository;
+import com.wsa.repository.UnitRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * 課程詳情查詢次數回歸測試
+ * 單元數量再多，課程詳情也只能以固定次數的查詢取得擁有權與完成狀態（不可逐單元查詢）
+ *
+ * 課程目錄快照直接由測試資料建立（CatalogService 的版本查詢依賴 Flyway 的 schema history，H2 中不存在）
+ */
+@DataJpaTest(properties = {
+    "spring.flyway.enabled=false",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({CourseService.class, UserCourseService.class, OwnedCourseCache.class, UnitCompletionCache.class})
+class CourseDetailQueryCountTest {
+
+    private static final String COURSE_CODE = "LARGE_COURSE";
+    private static final int SECTIONS = 8;
+    private static final int UNITS_PER_SECTION = 10;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    @MockBean
+    private CatalogService catalogService;
+
+    private final UUID userId = UUID.randomUUID();
+
+    /** 使用者已完成的單元（每 3 個單元完成 1 個） */
+    private final Set<UUID> completedUnitIds = new HashSet<>();
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Course course = entityManager.persist(Course.builder()
+            .code(COURSE_CODE)
+            .title("大型課程")
+            .teacherName("測試老師")
+            .totalUnits(SECTIONS * UNITS_PER_SECTION)
+            .build());
+
+        int orderIndex = 0;
+        for (int section = 1; section <= SECTIONS; section++) {
+            for (int i = 1; i <= UNITS_PER_SECTION; i++) {
+                Unit unit = entityManager.persist(Unit.builder()
+                    .unitId("large-" + section + "-" + i)
+                    .courseId(course.getId())
+                    .title("第 " + section + " 章第 " + i + " 單元")
+                    .type("video")
+                    .orderIndex(orderIndex)
+                    .sectionTitle("第 " + section + " 章")
+                    .orderInSection(i)
+                    .isFreePreview(orderIndex == 0)
+                    .build());
+
+                if (orderIndex % 3 == 0) {
+                    entityManager.persist(UserUnitProgress.builder()
+                        .userId(userId)
+                        .unitId(unit.getId())
+                        .lastPositionSeconds(0)
+                        .completedAt(LocalDateTime.now())
+                        .build());
+                    completedUnitIds.add(unit.getId());
+                }
+                orderIndex++;
+            }
+        }
+
+        entityManager.persist(UserCourse.builder()
+            .userId(userId)
+            .courseId(course.getId())
+            .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        CatalogSnapshot catalog = new CatalogSnapshot(1L, courseRepository.findAll(), unitRepository.findAll());
+        given(catalogService.getSnapshot()).willReturn(catalog);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("課程詳情的查詢次數與單元數量無關：快取未命中 2 次，命中後 0 次")
+    void courseDetailQueryCountDoesNotGrowWithUnits() {
+        CourseDetailResponseDto detail = courseService.getCourseDetailByCode(COURSE_CODE, userId);
+
+        // 擁有課程查詢 + 已完成單元查詢
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertCompletionFlags(detail);
+
+        statistics.clear();
+        CourseDetailResponseDto cached = courseService.getCourseDetailByCode(COURSE_CODE, userId);
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertCompletionFlags(cached);
+    }
+
+    @Test
+    @DisplayName("未擁有課程時每次再以一次查詢確認擁有權（不信任快取中的未擁有）")
+    void notOwnedCourseIsRecheckedAgainstDatabase() {
+        UUID visitorId = UUID.randomUUID();
+
+        CourseDetailResponseDto detail = courseService.getCourseDetailByCode(COURSE_CODE, visitorId);
+
+        // 擁有課程查詢 + 擁有權確認 + 已完成單元查詢
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(detail.getCourse().getIsOwned()).isFalse();
+
+        statistics.clear();
+        courseService.getCourseDetailByCode(COURSE_CODE, visitorId);
+
+        // 只有擁有權確認
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("未登入時課程詳情不查詢資料庫")
+    void anonymousCourseDetailIssuesNoQueries() {
+        CourseDetailResponseDto detail = courseService.getCourseDetailByCode(COURSE_CODE, null);
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(detail.getSections()).hasSize(SECTIONS);
+        assertThat(detail.getSections())
+            .flatExtracting(SectionDto::getUnits)
+            .noneMatch(UnitSummaryDto::getIsCompleted);
+    }
+
+    private void assertCompletionFlags(CourseDetailResponseDto detail) {
+        assertThat(detail.getCourse().getIsOwned()).isTrue();
+        assertThat(detail.getSections()).hasSize(SECTIONS);
+
+        List<UnitSummaryDto> units = detail.getSections().stream()
+            .flatMap(section -> section.getUnits().stream())
+            .toList();
+        assertThat(units).hasSize(SECTIONS * UNITS_PER_SECTION);
+        assertThat(units).allSatisfy(unit -> {
+            assertThat(unit.getIsCompleted()).isEqualTo(completedUnitIds.contains(unit.getId()));
+            assertThat(unit.getCanAccess()).isTrue();
+        });
+    }
+}
@@ -0,0 +1,237 @@
+package com.wsa.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wsa.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * IdempotencyService 測試
+ * 驗證重複冪等鍵回傳第一次的結果（含其他執行個體保存的結果）、等待逾時與執行中筆數上限
+ *
+ * idempotency_keys 以記憶體中的 InMemoryIdempotencyKeyRepository 取代，多個 IdempotencyService 共用即模擬多個執行個體
+ */
+class IdempotencyServiceTest {
+
+    private static final int MAX_IN_FLIGHT = 10;
+
+    private static final long WAIT_TIMEOUT_MILLIS = 300;
+
+    private final UUID userId = UUID.randomUUID();
+
+    private final InMemoryIdempotencyKeyRepository repository = new InMemoryIdempotencyKeyRepository();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(MAX_IN_FLIGHT + 1);
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = newInstance();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("重複的冪等鍵回傳第一次的結果，不會再次執行")
+    void repeatedKeyReturnsStoredResult() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String first = idempotencyService.execute("createOrder", userId, "key-1", "course-a", String.class,
+            () -> "order-" + calls.incrementAndGet());
+        String second = idempotencyService.execute("createOrder", userId, "key-1", "course-a", String.class,
+            () -> "order-" + calls.incrementAndGet());
+
+        assertThat(first).isEqualTo("order-1");
+        assertThat(second).isEqualTo("order-1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("重試送到其他執行個體時回傳第一次的結果")
+    void otherInstanceReturnsStoredResult() {
+        AtomicInteger calls = new AtomicInteger();
+        IdempotencyService otherInstance = newInstance();
+
+        idempotencyService.execute("createOrder", userId, "key-1", "course-a", String.class,
+            () -> "order-" + calls.incrementAndGet());
+        String retried = otherInstance.execute("createOrder", userId, "key-1", "course-a", String.class,
+            () -> "order-" + calls.incrementAndGet());
+
+        assertThat(retried).isEqualTo("order-1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("同一個冪等鍵用於不同的請求內容時拒絕")
+    void sameKeyWithDifferentFingerprintIsRejected() {
+        idempotencyService.execute("createOrder", userId, "key-1", "course-a", String.class, () -> "order-1");
+
+        assertThatThrownBy(() -> idempotencyService.execute("createOrder", userId, "key-1", "course-b", String.class,
+            () -> "order-2"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("執行失敗不保存結果，同一個冪等鍵可以重試")
+    void failureReleasesKey() {
+        assertThatThrownBy(() -> idempotencyService.execute("payOrder", userId, "key-1", "order", String.class, () -> {
+            throw new IllegalStateException("付款失敗");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(idempotencyService.execute("payOrder", userId, "key-1", "order", String.class, () -> "paid"))
+            .isEqualTo("paid");
+    }
+
+    @Test
+    @DisplayName("同一執行個體的重複請求等待第一次執行，逾時回應 409（IdempotencyInProgressException）")
+    void localDuplicateWaitIsBounded() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> idempotencyService.execute("payOrder", userId, "key-1", "order",
+            String.class, () -> {
+                started.countDown();
+                awaitUninterruptibly(release);
+                return "paid";
+            }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> idempotencyService.execute("payOrder", userId, "key-1", "order", String.class,
+            () -> "paid-again"))
+            .isInstanceOf(IdempotencyInProgressException.class);
+
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("paid");
+    }
+
+    @Test
+    @DisplayName("其他執行個體執行中時輪詢等待，逾時回應 409（IdempotencyInProgressException）")
+    void remoteDuplicateWaitIsBounded() throws Exception {
+        IdempotencyService otherInstance = newInstance();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> otherInstance.execute("payOrder", userId, "key-1", "order",
+            String.class, () -> {
+                started.countDown();
+                awaitUninterruptibly(release);
+                return "paid";
+            }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> idempotencyService.execute("payOrder", userId, "key-1", "order", String.class,
+            () -> "paid-again"))
+            .isInstanceOf(IdempotencyInProgressException.class);
+
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("paid");
+        assertThat(idempotencyService.execute("payOrder", userId, "key-1", "order", String.class, () -> "paid-again"))
+            .isEqualTo("paid");
+    }
+
+    @Test
+    @DisplayName("執行中的冪等鍵達到上限時回應 429（IdempotencyStoreFullException）")
+    void rejectsWhenTooManyInFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(MAX_IN_FLIGHT);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?>[] inFlight = new Future<?>[MAX_IN_FLIGHT];
+        for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+            String key = "in-flight-" + i;
+            inFlight[i] = executor.submit(() -> idempotencyService.execute("payOrder", userId, key, "order",
+                String.class, () -> {
+                    started.countDown();
+                    awaitUninterruptibly(release);
+                    return "paid";
+                }));
+        }
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> idempotencyService.execute("payOrder", userId, "one-more", "order", String.class,
+            () -> "paid"))
+            .isInstanceOf(IdempotencyStoreFullException.class);
+
+        release.countDown();
+        for (Future<?> future : inFlight) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        // 執行完成後不再佔用記憶體，新的冪等鍵可以執行
+        assertThat(idempotencyService.inFlightSize()).isZero();
+        assertThat(idempotencyService.execute("payOrder", userId, "one-more", "order", String.class, () -> "paid"))
+            .isEqualTo("paid");
+    }
+
+    private IdempotencyService newInstance() {
+        IdempotencyService service = new IdempotencyService(repository, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "ttlMillis", 86_400_000L);
+        ReflectionTestUtils.setField(service, "inProgressTtlMillis", 60_000L);
+        ReflectionTestUtils.setField(service, "waitTimeoutMillis", WAIT_TIMEOUT_MILLIS);
+        ReflectionTestUtils.setField(service, "maxInFlight", MAX_IN_FLIGHT);
+        return service;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 以記憶體模擬 idempotency_keys（不處理過期）
+     */
+    private static class InMemoryIdempotencyKeyRepository extends IdempotencyKeyRepository {
+
+        private final Map<String, StoredKey> keys = new ConcurrentHashMap<>();
+
+        InMemoryIdempotencyKeyRepository() {
+            super(null);
+        }
+
+        @Override
+        public boolean tryClaim(String scopeKey, String fingerprint, long leaseMillis) {
+            return keys.putIfAbsent(scopeKey, new StoredKey(fingerprint, null)) == null;
+        }
+
+        @Override
+        public Optional<StoredKey> find(String scopeKey) {
+            return Optional.ofNullable(keys.get(scopeKey));
+        }
+
+        @Override
+        public void complete(String scopeKey, String responseJson, long ttlMillis) {
+            keys.computeIfPresent(scopeKey, (key, stored) -> new StoredKey(stored.getFingerprint(), responseJson));
+        }
+
+        @Override
+        public void release(String scopeKey) {
+            keys.computeIfPresent(scopeKey, (key, stored) -> stored.getResponse() == null ? null : stored);
+        }
+
+        @Override
+        public int deleteExpired(int limit) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.wsa.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * OrderNoGenerator 測試
+ * 驗證多執行緒大量產生時不重複，且同一執行緒取得的編號依字串排序遞增，以及節點 ID 設定
+ */
+class OrderNoGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 62_500;
+    private static final int TOTAL = THREADS * PER_THREAD;
+
+    @Test
+    @DisplayName("16 個執行緒共產生 100 萬個編號，全部不重複且各執行緒內嚴格遞增")
+    void concurrentGenerationIsUniqueAndMonotonic() throws Exception {
+        OrderNoGenerator generator = new OrderNoGenerator(3);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    List<String> generated = new ArrayList<>(PER_THREAD);
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        generated.add(generator.next());
+                    }
+                    return generated;
+                }));
+            }
+            start.countDown();
+
+            Set<String> all = new HashSet<>(TOTAL * 2);
+            for (Future<List<String>> future : futures) {
+                List<String> generated = future.get(60, TimeUnit.SECONDS);
+                for (int i = 1; i < generated.size(); i++) {
+                    assertThat(generated.get(i)).isGreaterThan(generated.get(i - 1));
+                }
+                all.addAll(generated);
+            }
+
+            assertThat(all).hasSize(TOTAL);
+            assertThat(all).allSatisfy(orderNo -> assertThat(orderNo)
+                .hasSize(20)
+                .matches("\\d{14}03[0-9a-f]{4}"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("不同節點 ID 產生的編號不會重複")
+    void differentNodesNeverCollide() {
+        OrderNoGenerator node1 = new OrderNoGenerator(1);
+        OrderNoGenerator node2 = new OrderNoGenerator(2);
+
+        Set<String> all = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            all.add(node1.next());
+            all.add(node2.next());
+        }
+
+        assertThat(all).hasSize(200_000);
+    }
+
+    @Test
+    @DisplayName("節點 ID 超出 0-255 時拒絕")
+    void rejectsOutOfRangeNodeId() {
+        assertThatThrownBy(() -> new OrderNoGenerator(256)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OrderNoGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("prod 或 heroku profile 未設定節點 ID 時啟動失敗")
+    void missingNodeIdFailsInProductionProfiles() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("heroku", "prod");
+
+        assertThatThrownBy(() -> new OrderNoGenerator("", environment)).isInstanceOf(IllegalStateException.class);
+        assertThat(new OrderNoGenerator("7", environment).next()).matches("\\d{14}07[0-9a-f]{4}");
+    }
+
+    @Test
+    @DisplayName("其他 profile 未設定節點 ID 時使用節點 0")
+    void missingNodeIdDefaultsToZeroInDevelopment() {
+        assertThat(new OrderNoGenerator("", new MockEnvironment()).next()).matches("\\d{14}00[0-9a-f]{4}");
+    }
+}
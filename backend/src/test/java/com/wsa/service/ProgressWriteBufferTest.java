@@ -0,0 +1,109 @@
+package com.wsa.service;
+
+import com.wsa.repository.UserUnitProgressBatchRepository;
+import com.wsa.repository.UserUnitProgressBatchRepository.PositionUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * ProgressWriteBuffer 測試
+ * 驗證批次寫入失敗時逐筆寫入並捨棄無效資料，以及緩衝區筆數上限
+ */
+class ProgressWriteBufferTest {
+
+    private static final int MAX_SIZE = 3;
+
+    private final UserUnitProgressBatchRepository batchRepository = mock(UserUnitProgressBatchRepository.class);
+
+    private final UUID userId = UUID.randomUUID();
+
+    private ProgressWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new ProgressWriteBuffer(batchRepository);
+        ReflectionTestUtils.setField(buffer, "maxSize", MAX_SIZE);
+    }
+
+    @Test
+    @DisplayName("批次寫入失敗時逐筆寫入，違反資料完整性的資料被捨棄，不會每次排程都失敗")
+    void badRowIsDroppedAfterRowByRowFallback() {
+        UUID goodUnit = UUID.randomUUID();
+        UUID deletedUnit = UUID.randomUUID();
+        buffer.record(userId, goodUnit, 30);
+        buffer.record(userId, deletedUnit, 40);
+
+        doThrow(new DataIntegrityViolationException("batch")).when(batchRepository).upsertPositions(anyList());
+        doThrow(new DataIntegrityViolationException("fk"))
+            .when(batchRepository).upsertPosition(argThat(update -> update.getUnitId().equals(deletedUnit)));
+
+        buffer.flush();
+
+        verify(batchRepository).upsertPosition(argThat(update -> update.getUnitId().equals(goodUnit)));
+        assertThat(buffer.getBufferedPosition(userId, goodUnit)).isEmpty();
+        assertThat(buffer.getBufferedPosition(userId, deletedUnit)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("逐筆寫入遇到暫時性錯誤時停止，剩餘資料保留到下次重試")
+    void transientFailureKeepsRemainingRows() {
+        UUID unitId = UUID.randomUUID();
+        buffer.record(userId, unitId, 30);
+
+        doThrow(new QueryTimeoutException("batch")).when(batchRepository).upsertPositions(anyList());
+        doThrow(new QueryTimeoutException("row")).when(batchRepository).upsertPosition(any());
+
+        buffer.flush();
+
+        assertThat(buffer.getBufferedPosition(userId, unitId)).contains(30);
+    }
+
+    @Test
+    @DisplayName("緩衝區已滿且無法寫入資料庫時，新的位置直接寫入，不擴大緩衝區")
+    void fullBufferWritesDirectlyWhenFlushFails() {
+        doThrow(new QueryTimeoutException("down")).when(batchRepository).upsertPositions(anyList());
+        doThrow(new QueryTimeoutException("down"))
+            .when(batchRepository).upsertPosition(argThat(update -> update.getLastPositionSeconds() < 100));
+        for (int i = 0; i < MAX_SIZE; i++) {
+            buffer.record(userId, UUID.randomUUID(), i);
+        }
+
+        UUID overflowUnit = UUID.randomUUID();
+        doNothing().when(batchRepository).upsertPosition(argThat(update -> update.getLastPositionSeconds() == 100));
+        buffer.record(userId, overflowUnit, 100);
+
+        verify(batchRepository).upsertPosition(argThat((PositionUpdate update) -> update.getUnitId().equals(overflowUnit)));
+        assertThat(buffer.getBufferedPosition(userId, overflowUnit)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("緩衝區已滿時先同步寫入，寫入成功後新位置照常緩衝")
+    void fullBufferFlushesSynchronously() {
+        for (int i = 0; i < MAX_SIZE; i++) {
+            buffer.record(userId, UUID.randomUUID(), i);
+        }
+
+        UUID unitId = UUID.randomUUID();
+        buffer.record(userId, unitId, 100);
+
+        verify(batchRepository).upsertPositions(anyList());
+        verify(batchRepository, never()).upsertPosition(any());
+        assertThat(buffer.getBufferedPosition(userId, unitId)).contains(100);
+    }
+}
@@ -0,0 +1,99 @@
+package com.wsa.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UserBitSetCache 測試
+ * 驗證查詢期間的清除與設定位元只會丟棄同一使用者的查詢結果
+ */
+class UserBitSetCacheTest {
+
+    private final CatalogSnapshot catalog = new CatalogSnapshot(1L, List.of(), List.of());
+
+    private final UserBitSetCache cache = new UserBitSetCache(100, 60_000L);
+
+    private final UUID userId = UUID.randomUUID();
+
+    private final UUID otherUserId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("查詢期間其他使用者的變更不影響此使用者的查詢結果寫入快取")
+    void changesToOtherUsersDoNotDiscardLoad() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(userId, catalog, () -> {
+            loads.incrementAndGet();
+            cache.setBit(otherUserId, catalog, 3);
+            cache.invalidate(otherUserId);
+            return bits(1);
+        });
+        BitSet cached = cache.get(userId, catalog, () -> {
+            loads.incrementAndGet();
+            return bits(1);
+        });
+
+        assertThat(loads).hasValue(1);
+        assertThat(cached.get(1)).isTrue();
+    }
+
+    @Test
+    @DisplayName("查詢期間同一使用者被清除時，查詢結果不寫入快取")
+    void invalidationOfSameUserDiscardsLoad() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(userId, catalog, () -> {
+            loads.incrementAndGet();
+            cache.invalidate(userId);
+            return bits(1);
+        });
+        cache.get(userId, catalog, () -> {
+            loads.incrementAndGet();
+            return bits(1, 2);
+        });
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("查詢期間同一使用者設定位元時，查詢結果不寫入快取，下次重新查詢")
+    void setBitOfSameUserDuringLoadDiscardsLoad() {
+        cache.get(userId, catalog, () -> {
+            cache.setBit(userId, catalog, 2);
+            return bits(1);
+        });
+
+        BitSet reloaded = cache.get(userId, catalog, () -> bits(1, 2));
+
+        assertThat(reloaded.get(2)).isTrue();
+    }
+
+    @Test
+    @DisplayName("已快取時設定位元直接更新快取，不重新查詢")
+    void setBitUpdatesCachedValue() {
+        cache.get(userId, catalog, () -> bits(1));
+        cache.setBit(userId, catalog, 2);
+
+        BitSet cached = cache.get(userId, catalog, () -> {
+            throw new AssertionError("不應重新查詢");
+        });
+
+        assertThat(cached.get(1)).isTrue();
+        assertThat(cached.get(2)).isTrue();
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bits = new BitSet();
+        for (int index : indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+}